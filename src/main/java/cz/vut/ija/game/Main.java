@@ -265,6 +265,15 @@ public class Main extends Application implements SettingsChangeListener {
         root.setCenter(replayView);
     }
 
+    /**
+     * Detaches the view of the previous game from its board before a new game starts.
+     */
+    private void disposeGame() {
+        if (gameController != null) {
+            gameController.getView().dispose();
+        }
+    }
+
     /**
      * Loads a saved game and reconstructs the game at the specified move.
      *
@@ -276,6 +285,7 @@ public class Main extends Application implements SettingsChangeListener {
         GameSaveService saveService = new GameSaveService();
         GameBoard board = saveService.createBoardFromSave(save, moveIndex);
 
+        disposeGame();
         gameController = new GameController(board, false, 0);
         saveManager = new GameSaveManager(board, save.getBoardSize(), save.getBulbCount());
         gameController.setSaveManager(saveManager);
@@ -410,6 +420,7 @@ public class Main extends Application implements SettingsChangeListener {
         GameBoard puzzle = gen.generatePuzzle();
 
         // Initialize controller
+        disposeGame();
         gameController = new GameController(puzzle, timedModeEnabled, timeLimit);
 
         // Count moves
@@ -46,7 +46,7 @@ public class RotateCommand implements Command {
         this.row = row;
         this.col = col;
         // Capture the current rotation before execution
-        this.beforeRotation = board.getTile(row, col).getRotation();
+        this.beforeRotation = board.getTileRotation(row, col);
     }
 
     /**
@@ -56,7 +56,7 @@ public class RotateCommand implements Command {
     @Override
     public void execute() {
         board.rotateTile(row, col);
-        afterRotation = board.getTile(row, col).getRotation();
+        afterRotation = board.getTileRotation(row, col);
     }
 
     /**
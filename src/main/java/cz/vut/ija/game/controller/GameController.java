@@ -134,7 +134,7 @@ public class GameController {
         view.addEventHandler(TileClickEvent.TILE_CLICK, evt -> {
             int row = evt.getRow();
             int col = evt.getCol();
-            int oldRotation = model.getTile(row, col).getRotation();
+            int oldRotation = model.getTileRotation(row, col);
 
             // Create, execute, and record a RotateCommand
             Command cmd = new RotateCommand(model, evt.getRow(), evt.getCol());
@@ -148,7 +148,7 @@ public class GameController {
                 moveListener.onMove(moveCount);
             }
 
-            int newRotation = model.getTile(row, col).getRotation();
+            int newRotation = model.getTileRotation(row, col);
             if (saveManager != null) {
                 saveManager.recordMove(row, col, oldRotation, newRotation);
             }
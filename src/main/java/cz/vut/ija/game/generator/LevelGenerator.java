@@ -6,11 +6,9 @@
  * Class used for dynamically generating levels.
  */
 package cz.vut.ija.game.generator;
-import java.util.stream.Collectors;
 
 import cz.vut.ija.game.model.*;
 import cz.vut.ija.game.model.BulbTile;
-import cz.vut.ija.game.model.TTile;
 
 import java.util.*;
 
@@ -25,9 +23,9 @@ import java.util.*;
  */
 public class LevelGenerator {
     /**
-     * Set of positions to check for reachability.
+     * Cells reachable from the source in the last generated solution, by cell index.
      */
-    private Set<Position> checkReach = new HashSet<>();
+    private boolean[] checkReach;
     /**
      * Bias factor for T-junctions - higher values create more T junctions.
      */
@@ -36,6 +34,10 @@ public class LevelGenerator {
      * Rows and columns in the generated board, and bulb count.
      */
     private final int rows, cols, bulbCount;
+    /**
+     * Neighbourhood of the cells of the generated board.
+     */
+    private final Topology topology;
     /**
      * Random number generator.
      */
@@ -49,10 +51,21 @@ public class LevelGenerator {
      * @param bulbCount number of light bulbs
      */
     public LevelGenerator(int rows, int cols, int bulbCount) {
+        this(Topology.square(rows, cols), bulbCount);
+    }
+
+    /**
+     * Creates a new level generator for boards of the given topology, e.g. a torus.
+     *
+     * @param topology  shape of the generated boards
+     * @param bulbCount number of light bulbs
+     */
+    public LevelGenerator(Topology topology, int bulbCount) {
         if (bulbCount < 1) throw new IllegalArgumentException("bulbCount>=1");
-        this.rows = rows;
-        this.cols = cols;
+        this.rows = topology.getRows();
+        this.cols = topology.getCols();
         this.bulbCount = bulbCount;
+        this.topology = topology;
     }
 
     /**
@@ -91,6 +104,7 @@ public class LevelGenerator {
         }
         System.out.println("Tree generation complete. Building GameBoard and scrambling rotations.");
         GameBoard board = new GameBoard(solution);
+        board.setTopology(topology);
         // Before scramble loop, record solution rotations
         int[][] solRots = new int[rows][cols];
         for (int r = 0; r < rows; r++) {
@@ -98,29 +112,11 @@ public class LevelGenerator {
                 solRots[r][c] = solution[r][c].getRotation();
             }
         }
-        // Rotate every bulb tile's solution orientation by 180 degrees
-        for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < cols; c++) {
-                if (solution[r][c] instanceof BulbTile) {
-                    solRots[r][c] = (solRots[r][c] + 180) % 360;
-                }
-            }
-        }
-        // Rotate every T-tile's solution orientation by 270 degrees
-        for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < cols; c++) {
-                if (solution[r][c] instanceof TTile) {
-                    solRots[r][c] = (solRots[r][c] + 270) % 360;
-                }
-            }
-        }
         // Only include tiles that are part of the power path from source to bulbs
         // Uses checkReach from generateSolutionTiles
-        Set<Position> poweredPath = new HashSet<>(checkReach);
         for (int r = 0; r < rows; r++) {
             for (int c = 0; c < cols; c++) {
-                Position p = new Position(r, c);
-                if (!poweredPath.contains(p)) {
+                if (!checkReach[CellIndex.of(r, c, cols)]) {
                     solRots[r][c] = -1; // mark as not part of the solution
                 }
             }
@@ -129,12 +125,11 @@ public class LevelGenerator {
         // Scramble tile rotations
         for (int r = 0; r < rows; r++) {
             for (int c = 0; c < cols; c++) {
-                Tile t = solution[r][c];
-                int orig = t.getRotation(), rot;
+                int orig = solution[r][c].getRotation(), rot;
                 do {
                     rot = rnd.nextInt(4) * 90;
                 } while (rot == orig);
-                t.setRotation(rot);
+                // the tiles are shared, so the board swaps them instead of rotating
                 board.setTileRotation(r, c, rot);
             }
         }
@@ -144,34 +139,39 @@ public class LevelGenerator {
 
     /**
      * Generates the solution tiles for the board.
+     * <p>
+     * Cells are addressed by their index (see {@link CellIndex}) and the connections
+     * of each cell are kept as a connector mask (see {@link Side#bit()}).
      *
      * @return 2D array of tiles
      */
     private Tile[][] generateSolutionTiles() {
-        Position start = new Position(rnd.nextInt(rows), rnd.nextInt(cols));
-        System.out.println("Start cell: " + start);
+        int n = rows * cols;
+        int start = CellIndex.of(rnd.nextInt(rows), rnd.nextInt(cols), cols);
+        System.out.println("Start cell: " + CellIndex.toPosition(start, cols));
         // 1) Generate a perfect maze using DFS
-        Map<Position, Set<Side>> conn = new HashMap<>();
-        Set<Position> visited = new HashSet<>();
+        int[] conn = new int[n];
+        boolean[] visited = new boolean[n];
         System.out.println("Carving perfect maze...");
-        dfsCarve(start, visited, conn);
-        System.out.println("Perfect maze carved. Total cells visited: " + visited.size());
+        int visitedCount = dfsCarve(start, visited, conn, 0);
+        System.out.println("Perfect maze carved. Total cells visited: " + visitedCount);
         // Check full connectivity of the maze
-        if (visited.size() == rows * cols) {
-            System.out.println("Check: all " + visited.size() + " cells are connected in a single tree.");
+        if (visitedCount == n) {
+            System.out.println("Check: all " + visitedCount + " cells are connected in a single tree.");
         } else {
-            System.out.println("Warning: only " + visited.size() + " out of " + (rows * cols) + " cells are connected!");
+            System.out.println("Warning: only " + visitedCount + " out of " + n + " cells are connected!");
         }
 
         // 2) Find leaf nodes (degree 1), excluding the start
         List<Position> allLeaves = new ArrayList<>();
         List<Position> closeLeaves = new ArrayList<>();   // Manhattan ≤1
-        for (Position p : conn.keySet()) {
-            if (p.equals(start)) continue;
-            if (conn.get(p).size() == 1) {
-                int dist = Math.abs(p.getRow() - start.getRow()) + Math.abs(p.getCol() - start.getCol());
-                if (dist <= 1) closeLeaves.add(p);
-                else allLeaves.add(p);
+        for (int i = 0; i < n; i++) {
+            if (i == start) continue;
+            if (Integer.bitCount(conn[i]) == 1) {
+                int dist = Math.abs(CellIndex.row(i, cols) - CellIndex.row(start, cols))
+                        + Math.abs(CellIndex.col(i, cols) - CellIndex.col(start, cols));
+                if (dist <= 1) closeLeaves.add(CellIndex.toPosition(i, cols));
+                else allLeaves.add(CellIndex.toPosition(i, cols));
             }
         }
         System.out.println("Far leaves   : " + allLeaves);
@@ -186,8 +186,9 @@ public class LevelGenerator {
         }
         if (pool.size() < bulbCount) {
             // In extreme case, add any non-source cell (not ideal, but ensures count)
-            for (Position p : conn.keySet()) {
-                if (p.equals(start) || pool.contains(p)) continue;
+            for (int i = 0; i < n; i++) {
+                Position p = CellIndex.toPosition(i, cols);
+                if (i == start || pool.contains(p)) continue;
                 pool.add(p);
                 if (pool.size() == bulbCount) break;
             }
@@ -195,59 +196,21 @@ public class LevelGenerator {
         Collections.shuffle(pool, rnd);
         Set<Position> bulbs = new LinkedHashSet<>(pool.subList(0, bulbCount));
         System.out.println("Selected bulb positions: " + bulbs);
-        // Verify all bulbs are reachable from the carved tree
-        Set<Position> reach = new HashSet<>();
-        Deque<Position> dq = new ArrayDeque<>();
-        reach.add(start);
-        dq.add(start);
-        while (!dq.isEmpty()) {
-            Position curPos = dq.poll();
-            for (Side s : conn.getOrDefault(curPos, Collections.emptySet())) {
-                Position next = curPos.step(s);
-                if (!reach.contains(next)) {
-                    reach.add(next);
-                    dq.add(next);
-                }
-            }
-        }
-        if (reach.containsAll(bulbs)) {
-            System.out.println("Check: DFS-carve connected source to all bulbs.");
-        } else {
-            Set<Position> unreachable = new HashSet<>(bulbs);
-            unreachable.removeAll(reach);
-            System.out.println("Check: some bulbs unreachable: " + unreachable);
-        }
-        // Verify bulbs are reachable from the source in the final tree
-        Set<Position> reachable = new HashSet<>();
-        Deque<Position> queue = new ArrayDeque<>();
-        reachable.add(start);
-        queue.add(start);
-        while (!queue.isEmpty()) {
-            Position cur = queue.poll();
-            for (Side s : conn.getOrDefault(cur, Collections.emptySet())) {
-                Position next = cur.step(s);
-                if (!reachable.contains(next)) {
-                    reachable.add(next);
-                    queue.add(next);
-                }
-            }
-        }
-        boolean allReachable = true;
+        boolean[] isBulb = new boolean[n];
         for (Position b : bulbs) {
-            if (!reachable.contains(b)) {
-                allReachable = false;
-                break;
-            }
+            isBulb[CellIndex.of(b, cols)] = true;
         }
-        if (allReachable) {
+        // Verify all bulbs are reachable from the carved tree
+        if (reachesAll(reachFrom(start, conn), isBulb)) {
+            System.out.println("Check: DFS-carve connected source to all bulbs.");
             System.out.println("Check passed: all bulbs reachable from source.");
         } else {
-            System.out.println("Check failed: some bulbs NOT reachable! Reachable set: " + reachable);
+            System.out.println("Check failed: some bulbs NOT reachable!");
         }
 
         // 4) Apply T-bias to straight segments
         System.out.println("Applying T-bias (" + T_BIAS + ") to straight segments...");
-        addTBias(conn, bulbs);
+        addTBias(conn, isBulb);
         System.out.println("T-bias applied.");
 
         // Prune dead-end branches not leading to any bulb
@@ -255,14 +218,13 @@ public class LevelGenerator {
         boolean removed;
         do {
             removed = false;
-            for (Position p : new ArrayList<>(conn.keySet())) {
-                Set<Side> sides = conn.get(p);
+            for (int i = 0; i < n; i++) {
                 // dead end: not a bulb, not the source, degree == 1
-                if (!bulbs.contains(p) && !p.equals(start) && sides.size() == 1) {
-                    Side s = sides.iterator().next();
-                    Position np = p.step(s);
-                    sides.remove(s);
-                    conn.getOrDefault(np, Collections.emptySet()).remove(s.opposite());
+                if (!isBulb[i] && i != start && Integer.bitCount(conn[i]) == 1) {
+                    int d = Integer.numberOfTrailingZeros(conn[i]);
+                    int np = topology.neighbour(i, d);
+                    conn[i] = 0;
+                    conn[np] &= ~(1 << ((d + 2) & 3));
                     removed = true;
                 }
             }
@@ -271,36 +233,23 @@ public class LevelGenerator {
 
         // Optimize: remove unnecessary T-branches
         System.out.println("Optimizing to remove unnecessary T-branches...");
-        for (Position p : new ArrayList<>(conn.keySet())) {
-            Set<Side> sides = conn.get(p);
-            if (sides.size() >= 3) {
+        for (int i = 0; i < n; i++) {
+            if (Integer.bitCount(conn[i]) >= 3) {
                 // attempt to remove each side if it's not needed
-                for (Side s : new ArrayList<>(sides)) {
+                for (Side s : Side.values()) {
+                    if ((conn[i] & s.bit()) == 0) continue;
                     // Temporarily remove branch
-                    sides.remove(s);
-                    Position np = p.step(s);
-                    conn.getOrDefault(np, Collections.emptySet()).remove(s.opposite());
+                    int np = topology.neighbour(i, s);
+                    conn[i] &= ~s.bit();
+                    conn[np] &= ~s.opposite().bit();
                     // Check connectivity from source to all bulbs
-                    Set<Position> reach2 = new HashSet<>();
-                    Deque<Position> dq2 = new ArrayDeque<>();
-                    reach2.add(start);
-                    dq2.add(start);
-                    while (!dq2.isEmpty()) {
-                        Position cur = dq2.poll();
-                        for (Side ss : conn.getOrDefault(cur, Collections.emptySet())) {
-                            Position nxt = cur.step(ss);
-                            if (!reach2.contains(nxt)) {
-                                reach2.add(nxt);
-                                dq2.add(nxt);
-                            }
-                        }
-                    }
-                    if (!reach2.containsAll(bulbs)) {
+                    if (!reachesAll(reachFrom(start, conn), isBulb)) {
                         // revert removal if any bulb becomes unreachable
-                        sides.add(s);
-                        conn.computeIfAbsent(np, k -> new HashSet<>()).add(s.opposite());
+                        conn[i] |= s.bit();
+                        conn[np] |= s.opposite().bit();
                     } else {
-                        System.out.println("Removed unnecessary branch at " + p + " towards " + np);
+                        System.out.println("Removed unnecessary branch at " + CellIndex.toPosition(i, cols)
+                                + " towards " + CellIndex.toPosition(np, cols));
                     }
                 }
             }
@@ -308,41 +257,31 @@ public class LevelGenerator {
         System.out.println("Optimization complete.");
 
         // Final connectivity check
-        checkReach.clear();
-        Deque<Position> checkQueue = new ArrayDeque<>();
-        checkReach.add(start);
-        checkQueue.add(start);
-        while (!checkQueue.isEmpty()) {
-            Position cur = checkQueue.poll();
-            for (Side s : conn.getOrDefault(cur, Collections.emptySet())) {
-                Position nxt = cur.step(s);
-                if (!checkReach.contains(nxt)) {
-                    checkReach.add(nxt);
-                    checkQueue.add(nxt);
-                }
-            }
-        }
-        if (checkReach.containsAll(bulbs)) {
+        checkReach = reachFrom(start, conn);
+        if (reachesAll(checkReach, isBulb)) {
             System.out.println("SUCCESS: ALL BULBS CONNECTED");
         } else {
             System.out.println("FAILURE: BULBS NOT ALL CONNECTED: " + bulbs.stream()
-                    .filter(b -> !checkReach.contains(b))
+                    .filter(b -> !checkReach[CellIndex.of(b, cols)])
                     .toList());
         }
 
         if (rows == 10 && cols == 10) {
             // --- Ensure at least one X-junction along the main power path ---
-            List<Position> tNodes = conn.keySet().stream()
-                    .filter(p -> conn.get(p).size() == 3 && checkReach.contains(p))
-                    .collect(Collectors.toList());
+            List<Integer> tNodes = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                if (Integer.bitCount(conn[i]) == 3 && checkReach[i]) tNodes.add(i);
+            }
             if (!tNodes.isEmpty()) {
-                Position p = tNodes.get(rnd.nextInt(tNodes.size()));
+                int p = tNodes.get(rnd.nextInt(tNodes.size()));
                 for (Side s : Side.values()) {
-                    if (!conn.get(p).contains(s) && inBounds(p.step(s))) {
+                    int np = topology.neighbour(p, s);
+                    if ((conn[p] & s.bit()) == 0 && np >= 0) {
                         // add extra branch to make this a degree-4 node
-                        conn.get(p).add(s);
-                        conn.computeIfAbsent(p.step(s), k -> new HashSet<>()).add(s.opposite());
-                        System.out.println("X-junction forced at " + p + " by connecting to " + p.step(s));
+                        conn[p] |= s.bit();
+                        conn[np] |= s.opposite().bit();
+                        System.out.println("X-junction forced at " + CellIndex.toPosition(p, cols)
+                                + " by connecting to " + CellIndex.toPosition(np, cols));
                         break;
                     }
                 }
@@ -354,91 +293,229 @@ public class LevelGenerator {
         Tile[][] tiles = new Tile[rows][cols];
         for (int r = 0; r < rows; r++) {
             for (int c = 0; c < cols; c++) {
-                Position p = new Position(r, c);
-                Set<Side> needs = conn.getOrDefault(p, Collections.emptySet());
-                Tile t;
-                if (p.equals(start)) {
-                    t = new SourceTile();
-                } else if (bulbs.contains(p)) {
-                    t = new BulbTile();            // leaf
+                int i = CellIndex.of(r, c, cols);
+                int needs = conn[i];
+                TileKind kind;
+                if (i == start) {
+                    kind = TileKind.SOURCE;
+                } else if (isBulb[i]) {
+                    kind = TileKind.BULB;          // leaf
                 } else {
-                    t = chooseWire(needs);
+                    kind = chooseWire(needs);
                 }
-                int rot = computeRotation(needs, t);
-                t.setRotation(rot);
-                tiles[r][c] = t;
+                tiles[r][c] = kind.sharedTile(computeRotation(needs, kind));
             }
         }
         System.out.println("Tile matrix built.\n");
         return tiles;
     }
 
+    /**
+     * Generates one chunk of an endless board (see {@link ChunkedBoard}).
+     * <p>
+     * The chunk is a perfect maze with one exit on each edge. The exit of an edge is
+     * derived from the seed and the edge itself, so the neighbouring chunk opens the
+     * matching exit and the mazes join into one network. Dead ends become bulbs, and
+     * chunk (0, 0) turns one of them into the source. Rotations are scrambled, and the
+     * same seed and coordinates always give the same chunk.
+     *
+     * @param seed     seed of the endless board
+     * @param chunkRow row of the chunk
+     * @param chunkCol column of the chunk
+     * @param size     number of rows and columns of the chunk, at least 2
+     * @return size * size packed cells in row-major order
+     */
+    public static byte[] generateChunk(long seed, int chunkRow, int chunkCol, int size) {
+        if (size < 2) throw new IllegalArgumentException("size>=2");
+        Random rnd = new Random(hash(seed, chunkRow, chunkCol, 2));
+        int n = size * size;
+        Topology grid = Topology.square(size, size);
+        int[] conn = new int[n];
+
+        // Perfect maze, iterative so large chunks do not overflow the stack
+        boolean[] visited = new boolean[n];
+        int[] stack = new int[n];
+        int top = 0;
+        int first = rnd.nextInt(n);
+        visited[first] = true;
+        stack[top++] = first;
+        int[] dirs = new int[4];
+        while (top > 0) {
+            int cur = stack[top - 1];
+            int count = 0;
+            for (int d = 0; d < 4; d++) {
+                int next = grid.neighbour(cur, d);
+                if (next >= 0 && !visited[next]) dirs[count++] = d;
+            }
+            if (count == 0) {
+                top--;
+                continue;
+            }
+            int d = dirs[rnd.nextInt(count)];
+            int next = grid.neighbour(cur, d);
+            conn[cur] |= 1 << d;
+            conn[next] |= 1 << ((d + 2) & 3);
+            visited[next] = true;
+            stack[top++] = next;
+        }
+
+        // One exit per edge, agreed with the neighbour sharing that edge
+        int north = Math.floorMod(hash(seed, chunkRow, chunkCol, 0), size);
+        int south = Math.floorMod(hash(seed, chunkRow + 1, chunkCol, 0), size);
+        int west = Math.floorMod(hash(seed, chunkRow, chunkCol, 1), size);
+        int east = Math.floorMod(hash(seed, chunkRow, chunkCol + 1, 1), size);
+        conn[CellIndex.of(0, north, size)] |= Side.NORTH.bit();
+        conn[CellIndex.of(size - 1, south, size)] |= Side.SOUTH.bit();
+        conn[CellIndex.of(west, 0, size)] |= Side.WEST.bit();
+        conn[CellIndex.of(east, size - 1, size)] |= Side.EAST.bit();
+
+        int source = -1;
+        if (chunkRow == 0 && chunkCol == 0) {
+            List<Integer> leaves = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                if (Integer.bitCount(conn[i]) == 1) leaves.add(i);
+            }
+            if (!leaves.isEmpty()) source = leaves.get(rnd.nextInt(leaves.size()));
+        }
+
+        byte[] cells = new byte[n];
+        for (int i = 0; i < n; i++) {
+            TileKind kind;
+            if (i == source) {
+                kind = TileKind.SOURCE;
+            } else if (Integer.bitCount(conn[i]) == 1) {
+                kind = TileKind.BULB;
+            } else {
+                kind = TileKind.wireFor(conn[i]);
+            }
+            // scrambled, the solved rotation would be kind.rotationFor(conn[i])
+            cells[i] = (byte) kind.cell(rnd.nextInt(4) * 90);
+        }
+        return cells;
+    }
+
+    /**
+     * Mixes the seed of an endless board with chunk or edge coordinates.
+     *
+     * @param seed seed of the endless board
+     * @param row  row coordinate
+     * @param col  column coordinate
+     * @param kind what is hashed: 0 horizontal edge, 1 vertical edge, 2 chunk
+     * @return well-mixed hash
+     */
+    private static long hash(long seed, int row, int col, int kind) {
+        long x = seed ^ (((long) row << 32) | (col & 0xFFFFFFFFL)) * 0x9E3779B97F4A7C15L ^ kind;
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+
     /**
      * Performs a recursive depth-first search to carve paths through the board.
      *
-     * @param cur     current position
-     * @param visited set of visited positions
-     * @param conn    map of positions to their connections
+     * @param cur     index of the current cell
+     * @param visited visited flag of each cell
+     * @param conn    connector mask of each cell
+     * @param count   number of cells visited so far
+     * @return number of cells visited afterwards
      */
-    private void dfsCarve(Position cur, Set<Position> visited, Map<Position, Set<Side>> conn) {
-        visited.add(cur);
+    private int dfsCarve(int cur, boolean[] visited, int[] conn, int count) {
+        visited[cur] = true;
+        count++;
         List<Side> dirs = new ArrayList<>(Arrays.asList(Side.values()));
         Collections.shuffle(dirs, rnd);
         for (Side s : dirs) {
-            Position nxt = cur.step(s);
-            if (!inBounds(nxt) || visited.contains(nxt)) continue;
+            int nxt = topology.neighbour(cur, s);
+            if (nxt < 0 || visited[nxt]) continue;
             // vyříznout spojení (carve)
-            conn.computeIfAbsent(cur, k -> new HashSet<>()).add(s);
-            conn.computeIfAbsent(nxt, k -> new HashSet<>()).add(s.opposite());
-            if (visited.size() % 10 == 0) {
-                System.out.println("  DFS visited " + visited.size() + " cells...");
+            conn[cur] |= s.bit();
+            conn[nxt] |= s.opposite().bit();
+            if (count % 10 == 0) {
+                System.out.println("  DFS visited " + count + " cells...");
             }
-            dfsCarve(nxt, visited, conn);
+            count = dfsCarve(nxt, visited, conn, count);
         }
+        return count;
+    }
+
+    /**
+     * Finds all cells connected to the start cell.
+     *
+     * @param start index of the start cell
+     * @param conn  connector mask of each cell
+     * @return reachable flag of each cell
+     */
+    private boolean[] reachFrom(int start, int[] conn) {
+        boolean[] reach = new boolean[conn.length];
+        int[] queue = new int[conn.length];
+        int head = 0, tail = 0;
+        reach[start] = true;
+        queue[tail++] = start;
+        while (head < tail) {
+            int cur = queue[head++];
+            for (int d = 0; d < 4; d++) {
+                if ((conn[cur] & (1 << d)) == 0) continue;
+                int next = topology.neighbour(cur, d);
+                if (next >= 0 && !reach[next]) {
+                    reach[next] = true;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return reach;
+    }
+
+    /**
+     * Checks if every bulb is reachable.
+     *
+     * @param reach  reachable flag of each cell
+     * @param isBulb bulb flag of each cell
+     * @return true if no bulb is unreachable
+     */
+    private boolean reachesAll(boolean[] reach, boolean[] isBulb) {
+        for (int i = 0; i < reach.length; i++) {
+            if (isBulb[i] && !reach[i]) return false;
+        }
+        return true;
     }
 
     /**
      * Adds T-junction bias to connections.
      *
-     * @param conn  map of positions to their connections
-     * @param bulbs set of bulb positions
+     * @param conn   connector mask of each cell
+     * @param isBulb bulb flag of each cell
      */
-    private void addTBias(Map<Position, Set<Side>> conn, Set<Position> bulbs) {
+    private void addTBias(int[] conn, boolean[] isBulb) {
         // Collect candidates for T-bias: straight segments not adjacent to bulbs
-        List<Position> candidates = new ArrayList<>();
-        for (Position p : new ArrayList<>(conn.keySet())) {
-            Set<Side> sides = conn.get(p);
+        List<Integer> candidates = new ArrayList<>();
+        for (int i = 0; i < conn.length; i++) {
+            int sides = conn[i];
             // If node is directly adjacent to a bulb, do not add a branch – prevents leakage
             boolean nextToBulb = false;
-            for (Side sNeighbour : sides) {
-                Position neighbour = p.step(sNeighbour);
-                if (bulbs.contains(neighbour)) {
+            for (int d = 0; d < 4; d++) {
+                if ((sides & (1 << d)) != 0 && isBulb[topology.neighbour(i, d)]) {
                     nextToBulb = true;
                     break;
                 }
             }
             if (nextToBulb) continue;
-            if (sides.size() == 2) {
-                Iterator<Side> it = sides.iterator();
-                Side a = it.next(), b = it.next();
-                if (a.opposite() == b) {
-                    candidates.add(p);
-                }
+            if (sides == (Side.NORTH.bit() | Side.SOUTH.bit()) || sides == (Side.EAST.bit() | Side.WEST.bit())) {
+                candidates.add(i);
             }
         }
         int desired = Math.max(0, bulbCount - 1);
         Collections.shuffle(candidates, rnd);
         System.out.println("Adding exactly " + desired + " T-branches for " + bulbCount + " bulbs");
         for (int i = 0; i < Math.min(desired, candidates.size()); i++) {
-            Position p = candidates.get(i);
-            Set<Side> sides = conn.get(p);
+            int p = candidates.get(i);
             // find any free direction to branch
             for (Side s : Side.values()) {
-                if (!sides.contains(s) && inBounds(p.step(s))) {
-                    Position np = p.step(s);
-                    conn.get(p).add(s);
-                    conn.computeIfAbsent(np, k -> new HashSet<>()).add(s.opposite());
-                    System.out.println("  T-branch: added at " + p + " towards " + np);
+                int np = topology.neighbour(p, s);
+                if ((conn[p] & s.bit()) == 0 && np >= 0) {
+                    conn[p] |= s.bit();
+                    conn[np] |= s.opposite().bit();
+                    System.out.println("  T-branch: added at " + CellIndex.toPosition(p, cols)
+                            + " towards " + CellIndex.toPosition(np, cols));
                     break;
                 }
             }
@@ -448,100 +525,23 @@ public class LevelGenerator {
     /**
      * Chooses an appropriate wire type based on needed connections.
      *
-     * @param need set of sides that need connections
-     * @return the chosen wire tile
+     * @param need connector mask of the needed connections
+     * @return the chosen wire kind
      */
-    private Tile chooseWire(Set<Side> need) {
-        switch (need.size()) {
-            case 0:
-            case 1:
-                return new WireTile();
-            case 2: {
-                Iterator<Side> it = need.iterator();
-                Side a = it.next(), b = it.next();
-                return (a.opposite() == b) ? new WireTile() : new LTile();
-            }
-            case 3:
-                return new TTile();
-            case 4:
-                return new XTile();
-            default:
-                return new WireTile();
-        }
+    private TileKind chooseWire(int need) {
+        return TileKind.wireFor(need);
     }
 
     /**
      * Computes the required rotation for a tile to match needed connections.
      *
-     * @param needs set of sides that need connections
-     * @param t     the tile to rotate
+     * @param needs connector mask of the needed connections
+     * @param kind  kind of the tile to rotate
      * @return rotation in degrees
      */
-    private int computeRotation(Set<Side> needs, Tile t) {
-        Set<Side> base;
-        switch (t.getType()) {
-            case "I":
-                base = EnumSet.of(Side.NORTH, Side.SOUTH);
-                break;
-            case "L":
-                base = EnumSet.of(Side.NORTH, Side.EAST);
-                break;
-            case "T":
-                base = EnumSet.of(Side.NORTH, Side.EAST, Side.SOUTH);
-                break;
-            case "X":
-                base = EnumSet.allOf(Side.class);
-                break;
-            case "S":
-                base = EnumSet.of(Side.SOUTH);
-                break;
-            case "B":
-                base = EnumSet.of(Side.NORTH);
-                break;
-            default:
-                base = EnumSet.noneOf(Side.class);
-        }
-        for (int k = 0; k < 4; k++) {
-            Set<Side> rotSides = EnumSet.noneOf(Side.class);
-            for (Side s : base) {
-                Side cur = s;
-                for (int i = 0; i < k; i++) cur = rotate90(cur);
-                rotSides.add(cur);
-            }
-            if (rotSides.equals(needs)) return k * 90;
-        }
-        return 0;
-    }
-
-
-    /**
-     * Rotates a side 90 degrees clockwise.
-     *
-     * @param s the side to rotate
-     * @return the rotated side
-     */
-    private Side rotate90(Side s) {
-        switch (s) {
-            case NORTH:
-                return Side.EAST;
-            case EAST:
-                return Side.SOUTH;
-            case SOUTH:
-                return Side.WEST;
-            default:
-                return Side.NORTH;
-        }
-    }
-
-    /**
-     * Checks if a position is within the board boundaries.
-     *
-     * @param p position to check
-     * @return true if position is within bounds
-     */
-    private boolean inBounds(Position p) {
-        return p.getRow() >= 0 && p.getRow() < rows
-                && p.getCol() >= 0 && p.getCol() < cols;
+    private int computeRotation(int needs, TileKind kind) {
+        int rot = kind.rotationFor(needs);
+        return rot < 0 ? 0 : rot;
     }
 
-}
\ No newline at end of file
+}
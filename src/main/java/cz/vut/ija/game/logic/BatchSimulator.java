@@ -0,0 +1,320 @@
+/**
+ * Authors:
+ * Filip Hladík (xhladi26)
+ * Maksim Samusevich (xsamus00)
+ * <p>
+ * Simulator evaluating many boards of the same size at once.
+ */
+package cz.vut.ija.game.logic;
+
+import cz.vut.ija.game.model.GameBoard;
+import cz.vut.ija.game.model.TileKind;
+import cz.vut.ija.game.model.Topology;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Simulator for a large number of small boards of the same size, e.g. for analytics,
+ * generators and bots.
+ * <p>
+ * All boards live in a few flat primitive arrays (struct of arrays): the packed cells of
+ * board b are cells[b * size .. (b + 1) * size), its powered bits are words
+ * [b * words .. (b + 1) * words) of one long[], and the lit bulb counts and win flags
+ * are plain arrays indexed by board. No GameBoard or Tile objects are involved.
+ * {@link #propagateAll()} floods every board from its source, splitting the boards into
+ * ranges that run in parallel on a ForkJoinPool.
+ */
+public class BatchSimulator {
+    /**
+     * Number of boards handled by one task.
+     */
+    private static final int BOARDS_PER_TASK = 256;
+    /**
+     * Pool the boards are propagated on.
+     */
+    private final ForkJoinPool pool;
+    /**
+     * Number of boards.
+     */
+    private final int boardCount;
+    /**
+     * Number of rows and columns of every board.
+     */
+    private final int rows, cols;
+    /**
+     * Number of tiles of every board.
+     */
+    private final int size;
+    /**
+     * Number of powered-bit words of every board.
+     */
+    private final int words;
+    /**
+     * Neighbourhood shared by all boards, a plain grid.
+     */
+    private final Topology topology;
+    /**
+     * Packed cells of all boards, see {@link TileKind#cell(int)}.
+     */
+    private final byte[] cells;
+    /**
+     * Powered bits of all boards.
+     */
+    private final long[] powered;
+    /**
+     * Number of bulbs of each board, counted by the last propagation.
+     */
+    private final int[] bulbs;
+    /**
+     * Number of lit bulbs of each board, counted by the last propagation.
+     */
+    private final int[] litBulbs;
+    /**
+     * Whether every bulb of a board was lit by the last propagation.
+     */
+    private final boolean[] won;
+
+    /**
+     * Creates a batch of boards on the common pool, all filled with straight wires.
+     *
+     * @param boardCount number of boards
+     * @param rows       number of rows of every board
+     * @param cols       number of columns of every board
+     */
+    public BatchSimulator(int boardCount, int rows, int cols) {
+        this(boardCount, rows, cols, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a batch of boards, all filled with straight wires.
+     *
+     * @param boardCount number of boards
+     * @param rows       number of rows of every board
+     * @param cols       number of columns of every board
+     * @param pool       pool to propagate on
+     */
+    public BatchSimulator(int boardCount, int rows, int cols, ForkJoinPool pool) {
+        this.pool = pool;
+        this.boardCount = boardCount;
+        this.rows = rows;
+        this.cols = cols;
+        this.size = rows * cols;
+        this.words = (size + 63) >>> 6;
+        this.topology = Topology.square(rows, cols);
+        this.cells = new byte[Math.multiplyExact(boardCount, size)];
+        Arrays.fill(cells, (byte) TileKind.WIRE.cell(0));
+        this.powered = new long[Math.multiplyExact(boardCount, words)];
+        this.bulbs = new int[boardCount];
+        this.litBulbs = new int[boardCount];
+        this.won = new boolean[boardCount];
+    }
+
+    /**
+     * Gets the number of boards.
+     *
+     * @return board count
+     */
+    public int getBoardCount() {
+        return boardCount;
+    }
+
+    /**
+     * Copies the tiles of a game board into one of the boards.
+     *
+     * @param b     index of the board
+     * @param board board of the same size to copy
+     */
+    public void setBoard(int b, GameBoard board) {
+        if (board.getRows() != rows || board.getCols() != cols)
+            throw new IllegalArgumentException("Board size does not match the batch");
+        int base = b * size;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                cells[base + r * cols + c] = (byte) board.getTileKind(r, c).cell(board.getTileRotation(r, c));
+            }
+        }
+    }
+
+    /**
+     * Reads a packed cell.
+     *
+     * @param b     index of the board
+     * @param index row * cols + col
+     * @return the packed cell
+     */
+    public int getCell(int b, int index) {
+        return cells[b * size + index];
+    }
+
+    /**
+     * Writes a packed cell.
+     *
+     * @param b     index of the board
+     * @param index row * cols + col
+     * @param cell  the packed cell
+     */
+    public void setCell(int b, int index, int cell) {
+        cells[b * size + index] = (byte) cell;
+    }
+
+    /**
+     * Rotates a tile 90° clockwise.
+     *
+     * @param b     index of the board
+     * @param index row * cols + col
+     */
+    public void rotate(int b, int index) {
+        int cell = cells[b * size + index];
+        cells[b * size + index] = (byte) ((cell & ~3) | ((cell + 1) & 3));
+    }
+
+    /**
+     * Propagates power on all boards in parallel.
+     */
+    public void propagateAll() {
+        pool.invoke(new Range(0, boardCount));
+    }
+
+    /**
+     * Propagates power on a single board.
+     *
+     * @param b index of the board
+     */
+    public void propagate(int b) {
+        propagate(b, new int[size]);
+    }
+
+    /**
+     * Checks if a tile is powered after the last propagation.
+     *
+     * @param b     index of the board
+     * @param index row * cols + col
+     * @return true if the tile is powered
+     */
+    public boolean isPowered(int b, int index) {
+        return (powered[b * words + (index >>> 6)] & (1L << index)) != 0;
+    }
+
+    /**
+     * Exports the powered state of a board, bit (row * cols + col).
+     *
+     * @param b index of the board
+     * @return a copy of the board's powered bits
+     */
+    public long[] getPoweredBits(int b) {
+        return Arrays.copyOfRange(powered, b * words, (b + 1) * words);
+    }
+
+    /**
+     * Gets the number of bulbs of a board, counted by the last propagation.
+     *
+     * @param b index of the board
+     * @return bulb count
+     */
+    public int getBulbCount(int b) {
+        return bulbs[b];
+    }
+
+    /**
+     * Gets the number of lit bulbs of a board after the last propagation.
+     *
+     * @param b index of the board
+     * @return lit bulb count
+     */
+    public int getLitBulbCount(int b) {
+        return litBulbs[b];
+    }
+
+    /**
+     * Checks if every bulb of a board was lit by the last propagation.
+     *
+     * @param b index of the board
+     * @return true if no bulb is unlit
+     */
+    public boolean isWon(int b) {
+        return won[b];
+    }
+
+    /**
+     * Floods one board from its source.
+     *
+     * @param b     index of the board
+     * @param queue scratch queue with room for every tile of a board
+     */
+    private void propagate(int b, int[] queue) {
+        int base = b * size;
+        int wordBase = b * words;
+        Arrays.fill(powered, wordBase, wordBase + words, 0L);
+
+        int source = -1, bulbCount = 0;
+        for (int i = 0; i < size; i++) {
+            TileKind kind = TileKind.ofCell(cells[base + i]);
+            if (kind == TileKind.BULB) bulbCount++;
+            else if (kind == TileKind.SOURCE && source < 0) source = i;
+        }
+
+        int lit = 0;
+        if (source >= 0) {
+            int head = 0, tail = 0;
+            powered[wordBase + (source >>> 6)] |= 1L << source;
+            queue[tail++] = source;
+            while (head < tail) {
+                int cur = queue[head++];
+                int mask = TileKind.maskOfCell(cells[base + cur]);
+                for (int d = 0; d < 4; d++) {
+                    if ((mask & (1 << d)) == 0) continue;
+                    int next = topology.neighbour(cur, d);
+                    if (next < 0 || (powered[wordBase + (next >>> 6)] & (1L << next)) != 0) continue;
+                    int theirs = cells[base + next];
+                    if ((TileKind.maskOfCell(theirs) & (1 << ((d + 2) & 3))) == 0) continue;
+                    powered[wordBase + (next >>> 6)] |= 1L << next;
+                    queue[tail++] = next;
+                    if (TileKind.ofCell(theirs) == TileKind.BULB) lit++;
+                }
+            }
+        }
+        bulbs[b] = bulbCount;
+        litBulbs[b] = lit;
+        won[b] = lit == bulbCount;
+    }
+
+    /**
+     * Task propagating a range of boards, split until it is small enough.
+     */
+    private final class Range extends RecursiveAction {
+        /**
+         * Serialization version, tasks are never serialized.
+         */
+        private static final long serialVersionUID = 1L;
+        /**
+         * First board of the range and the end of the range.
+         */
+        private final int from, to;
+
+        /**
+         * Creates a task for the boards [from, to).
+         *
+         * @param from first board
+         * @param to   end of the range
+         */
+        Range(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BOARDS_PER_TASK) {
+                int[] queue = new int[size];
+                for (int b = from; b < to; b++) {
+                    propagate(b, queue);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Range(from, mid), new Range(mid, to));
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/**
+ * Authors:
+ * Filip Hladík (xhladi26)
+ * Maksim Samusevich (xsamus00)
+ * <p>
+ * Word-at-a-time flood fill for large boards.
+ */
+package cz.vut.ija.game.logic;
+
+import cz.vut.ija.game.model.GameBoard;
+
+import java.util.Arrays;
+
+/**
+ * Propagation engine that processes 64 tiles of a row at once.
+ * <p>
+ * The board is first converted into edge bitplanes: one long word per 64 tiles of a row,
+ * with a bit set where two neighbouring tiles have matching connectors. Power then spreads
+ * through whole rows with a single addition per word (a carry runs along a stretch of open
+ * east edges exactly like power does) and between rows with AND/OR. A worklist holds the
+ * rows that gained power; a row is filled and spread to its neighbours only when it is
+ * taken from the list, and neighbours are queued only if they gained power in turn.
+ */
+public class BitParallelEngine implements PropagationEngine {
+    /**
+     * Connector bits of a 4-bit mask, see Side.bit().
+     */
+    private static final int NORTH = 1, EAST = 2, SOUTH = 4, WEST = 8;
+
+    @Override
+    public void propagate(GameBoard board, int source, long[] powered) {
+        int rows = board.getRows();
+        int cols = board.getCols();
+        int words = (cols + 63) >>> 6;
+
+        // east[r][w] bit c: tiles c and c+1 are connected; west: tiles c-1 and c; south: rows r and r+1
+        long[] east = new long[rows * words];
+        long[] west = new long[rows * words];
+        long[] south = new long[rows * words];
+        buildEdges(board, rows, cols, words, east, west, south);
+
+        long[] power = new long[rows * words];
+        int sourceRow = source / cols;
+        int sourceCol = source % cols;
+        power[sourceRow * words + (sourceCol >>> 6)] |= 1L << sourceCol;
+
+        // Worklist of rows that gained power, with the range of words that changed since the
+        // row was last processed. Only those words are filled and spread, and only rows next
+        // to a changed row are queued, so a winding path costs work proportional to what it
+        // powers instead of a sweep over the whole board per turn.
+        int[] work = new int[rows];
+        int[] low = new int[rows], high = new int[rows];
+        Arrays.fill(low, -1);
+        int pending = 0;
+        work[pending++] = sourceRow;
+        low[sourceRow] = high[sourceRow] = sourceCol >>> 6;
+        while (pending > 0) {
+            int r = work[--pending];
+            int base = r * words;
+            long range = fillRow(power, east, west, base, words, low[r], high[r]);
+            low[r] = -1;
+            int from = (int) (range >>> 32), to = (int) range;
+            if (r > 0 && spread(power, south, base, base - words, base - words, from, to, r - 1, low, high)) {
+                work[pending++] = r - 1;
+            }
+            if (r + 1 < rows && spread(power, south, base, base + words, base, from, to, r + 1, low, high)) {
+                work[pending++] = r + 1;
+            }
+        }
+
+        // Convert the padded row layout into the dense simulator layout
+        for (int r = 0; r < rows; r++) {
+            for (int w = 0; w < words; w++) {
+                long bits = power[r * words + w];
+                while (bits != 0) {
+                    int index = r * cols + (w << 6) + Long.numberOfTrailingZeros(bits);
+                    powered[index >>> 6] |= 1L << index;
+                    bits &= bits - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds the edge bitplanes from the tile connectors.
+     *
+     * @param board the board
+     * @param rows  number of rows
+     * @param cols  number of columns
+     * @param words words per row
+     * @param east  receives east edges
+     * @param west  receives west edges
+     * @param south receives south edges
+     */
+    private static void buildEdges(GameBoard board, int rows, int cols, int words,
+                                   long[] east, long[] west, long[] south) {
+        long[] eastConn = new long[words], westConn = new long[words], northConn = new long[words];
+        long[] southConn = new long[words], southAbove = new long[words];
+        for (int r = 0; r < rows; r++) {
+            Arrays.fill(eastConn, 0L);
+            Arrays.fill(westConn, 0L);
+            Arrays.fill(northConn, 0L);
+            Arrays.fill(southConn, 0L);
+            for (int c = 0; c < cols; c++) {
+                int mask = board.getConnectorMask(r, c);
+                long bit = 1L << c;
+                if ((mask & NORTH) != 0) northConn[c >>> 6] |= bit;
+                if ((mask & EAST) != 0) eastConn[c >>> 6] |= bit;
+                if ((mask & SOUTH) != 0) southConn[c >>> 6] |= bit;
+                if ((mask & WEST) != 0) westConn[c >>> 6] |= bit;
+            }
+            int base = r * words;
+            for (int w = 0; w < words; w++) {
+                long westOfNext = (westConn[w] >>> 1) | (w + 1 < words ? westConn[w + 1] << 63 : 0L);
+                east[base + w] = eastConn[w] & westOfNext;
+            }
+            for (int w = 0; w < words; w++) {
+                west[base + w] = (east[base + w] << 1) | (w > 0 ? east[base + w - 1] >>> 63 : 0L);
+                if (r > 0) {
+                    south[base - words + w] = southAbove[w] & northConn[w];
+                }
+            }
+            long[] swap = southAbove;
+            southAbove = southConn;
+            southConn = swap;
+        }
+    }
+
+    /**
+     * Spreads power along the row in both directions as far as the edges allow.
+     * <p>
+     * Adding the open edges to the powered tiles that have an open edge makes the carry
+     * run to the end of each stretch of edges; XOR with the edges leaves exactly the tiles
+     * the carry passed. West is the same with bit-reversed words, walked right to left.
+     * <p>
+     * The rest of the row was filled before, so each pass starts at the changed words and
+     * stops beyond them at the first word that neither changes nor passes a carry on.
+     *
+     * @param power powered planes
+     * @param east  east edges
+     * @param west  west edges
+     * @param base  index of the row's first word
+     * @param words words per row
+     * @param low   first word that gained power
+     * @param high  last word that gained power
+     * @return first and last word changed by the fill or before it, as (first << 32) | last
+     */
+    private static long fillRow(long[] power, long[] east, long[] west, int base, int words, int low, int high) {
+        long carry = 0;
+        int w = low;
+        for (; w < words; w++) {
+            long seeds = power[base + w] | carry;
+            long edges = east[base + w];
+            long sum = (seeds & edges) + edges;
+            carry = Long.compareUnsigned(sum, edges) < 0 ? 1L : 0L;
+            long filled = seeds | (sum ^ edges);
+            boolean changed = filled != power[base + w];
+            power[base + w] = filled;
+            if (w >= high && !changed && carry == 0) break;
+        }
+        high = Math.max(high, Math.min(w, words - 1));
+        carry = 0;
+        w = high;
+        for (; w >= 0; w--) {
+            long seeds = Long.reverse(power[base + w]) | carry;
+            long edges = Long.reverse(west[base + w]);
+            long sum = (seeds & edges) + edges;
+            carry = Long.compareUnsigned(sum, edges) < 0 ? 1L : 0L;
+            long filled = Long.reverse(seeds | (sum ^ edges));
+            boolean changed = filled != power[base + w];
+            power[base + w] = filled;
+            if (w <= low && !changed && carry == 0) break;
+        }
+        low = Math.min(low, Math.max(w, 0));
+        return ((long) low << 32) | high;
+    }
+
+    /**
+     * Moves power from the changed words of one row to a neighbouring row across the
+     * open vertical edges, widening the changed range of the neighbour.
+     *
+     * @param power  powered planes
+     * @param south  south edges
+     * @param from   index of the first word of the powered row
+     * @param to     index of the first word of the row to power
+     * @param edges  index of the first word of the edges between the two rows
+     * @param first  first changed word of the powered row
+     * @param last   last changed word of the powered row
+     * @param target the row to power
+     * @param low    first changed word of every row, -1 if the row is not queued
+     * @param high   last changed word of every row
+     * @return true if the target row gained power and has to be queued
+     */
+    private static boolean spread(long[] power, long[] south, int from, int to, int edges, int first, int last,
+                                  int target, int[] low, int[] high) {
+        boolean queue = false;
+        for (int w = first; w <= last; w++) {
+            long add = power[from + w] & south[edges + w] & ~power[to + w];
+            if (add == 0) continue;
+            power[to + w] |= add;
+            if (low[target] < 0) {
+                low[target] = high[target] = w;
+                queue = true;
+            } else {
+                low[target] = Math.min(low[target], w);
+                high[target] = Math.max(high[target], w);
+            }
+        }
+        return queue;
+    }
+}
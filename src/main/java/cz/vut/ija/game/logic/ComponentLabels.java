@@ -0,0 +1,441 @@
+/**
+ * Authors:
+ * Filip Hladík (xhladi26)
+ * Maksim Samusevich (xsamus00)
+ * <p>
+ * Labels of all connected wire networks on the board.
+ */
+package cz.vut.ija.game.logic;
+
+import cz.vut.ija.game.model.CellIndex;
+import cz.vut.ija.game.model.GameBoard;
+import cz.vut.ija.game.model.Topology;
+
+import java.util.Arrays;
+
+/**
+ * Connected components of the board, powered or not.
+ * <p>
+ * Two neighbouring tiles are connected when both have a connector on their shared side,
+ * the same rule the power propagation follows. Every tile belongs to exactly one
+ * component, a tile without connections forms a component of its own. Every tile stores
+ * the label of its component directly, so a lookup is a single array read. Labels are
+ * only stable until the next change.
+ * <p>
+ * A change of one tile only changes the connections of that tile, and only the smaller
+ * side of each change is labelled again. When connections appear, the smaller of two
+ * merged components takes the label of the larger one. When connections disappear, the
+ * component may split: a BFS runs from the tile and from each neighbour it lost, one step
+ * at a time in turn, searches that meet are joined, and as soon as a single search is
+ * unfinished the others have enumerated the small pieces. Those get new labels, while the
+ * rest of the old component keeps its label without being visited, so cutting off a few
+ * tiles from a nearly solved board costs only those tiles.
+ * <p>
+ * Instances are owned by a {@link GameSimulator}, see {@link GameSimulator#getComponents()}.
+ */
+public class ComponentLabels {
+    /**
+     * Most searches of one split: the tile and its four neighbours.
+     */
+    private static final int MAX_SEARCHES = 5;
+    /**
+     * The labelled board.
+     */
+    private final GameBoard board;
+    /**
+     * Neighbourhood of the board's cells.
+     */
+    private final Topology topology;
+    /**
+     * Number of columns of the board.
+     */
+    private final int cols;
+    /**
+     * Connector mask of every tile as last labelled.
+     */
+    private final byte[] masks;
+    /**
+     * Label of every tile.
+     */
+    private final int[] label;
+    /**
+     * Number of tiles of each component, indexed by label.
+     */
+    private final int[] size;
+    /**
+     * Labels not used by any component.
+     */
+    private final int[] free;
+    /**
+     * Number of entries in free.
+     */
+    private int freeCount;
+    /**
+     * Visit mark of every tile during a split, (epoch << 3) | search, so it never needs
+     * clearing. Epochs start at 1, so the initial zeros mark nothing.
+     */
+    private final int[] visited;
+    /**
+     * Current split, see visited.
+     */
+    private int epoch;
+    /**
+     * Tiles visited by each search of a split in BFS order, reused between splits.
+     */
+    private final int[][] found = new int[MAX_SEARCHES][];
+    /**
+     * Number of tiles found and number of tiles expanded by each search.
+     */
+    private final int[] foundCount = new int[MAX_SEARCHES], expanded = new int[MAX_SEARCHES];
+    /**
+     * Search each search was joined into, or itself.
+     */
+    private final int[] joined = new int[MAX_SEARCHES];
+    /**
+     * BFS queue of tile indices.
+     */
+    private final int[] queue;
+    /**
+     * Number of components.
+     */
+    private int count;
+    /**
+     * State hash of the board the labels were last brought up to date with.
+     */
+    private long labelledHash;
+
+    /**
+     * Labels all components of the board.
+     *
+     * @param board    the board
+     * @param topology neighbourhood of the board's cells
+     */
+    ComponentLabels(GameBoard board, Topology topology) {
+        this.board = board;
+        this.topology = topology;
+        this.cols = board.getCols();
+        int n = board.getRows() * cols;
+        this.masks = new byte[n];
+        this.label = new int[n];
+        this.size = new int[n];
+        this.free = new int[n];
+        this.visited = new int[n];
+        this.queue = new int[n];
+        for (int i = 0; i < MAX_SEARCHES; i++) {
+            found[i] = new int[16];
+        }
+        rebuild();
+    }
+
+    /**
+     * Labels the whole board again.
+     */
+    void rebuild() {
+        for (int i = 0; i < masks.length; i++) {
+            masks[i] = (byte) readMask(i);
+            label[i] = -1;
+        }
+        count = 0;
+        for (int i = 0; i < masks.length; i++) {
+            if (label[i] >= 0) continue;
+            // each BFS labels one whole component
+            int head = 0, tail = 0;
+            label[i] = count;
+            queue[tail++] = i;
+            while (head < tail) {
+                int cur = queue[head++];
+                for (int d = 0; d < 4; d++) {
+                    if (!linked(cur, d)) continue;
+                    int next = topology.neighbour(cur, d);
+                    if (label[next] >= 0) continue;
+                    label[next] = count;
+                    queue[tail++] = next;
+                }
+            }
+            size[count++] = tail;
+        }
+        freeCount = 0;
+        for (int l = masks.length - 1; l >= count; l--) {
+            free[freeCount++] = l;
+        }
+        labelledHash = board.getStateHash();
+    }
+
+    /**
+     * Checks if the labels were brought up to date with the current board, i.e. no tile
+     * changed since without being passed to {@link #update(int)}.
+     *
+     * @return true if the labels match the board
+     */
+    boolean isCurrent() {
+        return labelledHash == board.getStateHash();
+    }
+
+    /**
+     * Updates the labels after a tile has changed.
+     *
+     * @param index row * cols + col of the changed tile
+     */
+    void update(int index) {
+        labelledHash = board.getStateHash();
+        int before = masks[index];
+        int after = readMask(index);
+        if (before == after) return;
+
+        // connections of the tile before and after the change, its other connections are unchanged
+        int lostSides = 0, gainedSides = 0;
+        for (int d = 0; d < 4; d++) {
+            if (linked(index, d)) lostSides |= 1 << d;
+        }
+        masks[index] = (byte) after;
+        for (int d = 0; d < 4; d++) {
+            if (linked(index, d)) {
+                gainedSides |= 1 << d;
+            }
+        }
+        int kept = lostSides & gainedSides;
+        lostSides &= ~kept;
+        gainedSides &= ~kept;
+
+        if (lostSides != 0) {
+            // split with only the connections that survive, then merge the new ones
+            masks[index] = (byte) (before & after);
+            split(index, lostSides);
+            masks[index] = (byte) after;
+        }
+        for (int d = 0; d < 4; d++) {
+            if ((gainedSides & (1 << d)) != 0) union(index, topology.neighbour(index, d));
+        }
+    }
+
+    /**
+     * Labels the pieces of a component after the tile lost connections. Every tile of the
+     * old component is still connected to the tile or to one of its old neighbours, so the
+     * searches from those seeds cover all the pieces.
+     *
+     * @param index     row * cols + col of the changed tile
+     * @param lostSides directions of the lost connections
+     */
+    private void split(int index, int lostSides) {
+        int old = label[index];
+        if (++epoch == 1 << 28) {
+            // the marks would overflow, start over
+            Arrays.fill(visited, 0);
+            epoch = 1;
+        }
+        int searches = 0, live = 0;
+        for (int d = -1; d < 4; d++) {
+            if (d >= 0 && (lostSides & (1 << d)) == 0) continue;
+            int seed = d < 0 ? index : topology.neighbour(index, d);
+            // on tiny wrapping boards two seeds may be the same tile
+            if (visited[seed] >>> 3 == epoch) continue;
+            joined[searches] = searches;
+            foundCount[searches] = 0;
+            expanded[searches] = 0;
+            add(searches, seed);
+            searches++;
+            live++;
+        }
+
+        // one step of every unfinished search in turn, until at most one is left
+        while (live > 1) {
+            for (int s = 0; s < searches && live > 1; s++) {
+                if (joined[s] != s) continue;
+                if (expanded[s] == foundCount[s]) continue;
+                int cur = found[s][expanded[s]++];
+                int mine = s;
+                for (int d = 0; d < 4; d++) {
+                    if (!linked(cur, d)) continue;
+                    int next = topology.neighbour(cur, d);
+                    if (visited[next] >>> 3 != epoch) {
+                        add(mine, next);
+                        continue;
+                    }
+                    int other = searchOf(visited[next] & 7);
+                    if (other != mine) {
+                        mine = join(mine, other);
+                        live--;
+                    }
+                }
+                if (mine == s && expanded[s] == foundCount[s]) live--;
+            }
+        }
+
+        // finished searches hold the small pieces; the unfinished one, or the largest if
+        // all finished, keeps the old label
+        int keep = -1;
+        for (int s = 0; s < searches; s++) {
+            if (joined[s] != s) continue;
+            if (expanded[s] < foundCount[s]) {
+                keep = s;
+                break;
+            }
+            if (keep < 0 || foundCount[s] > foundCount[keep]) keep = s;
+        }
+        for (int s = 0; s < searches; s++) {
+            if (joined[s] != s || s == keep) continue;
+            int piece = free[--freeCount];
+            int[] tiles = found[s];
+            for (int i = 0; i < foundCount[s]; i++) {
+                label[tiles[i]] = piece;
+            }
+            size[piece] = foundCount[s];
+            size[old] -= foundCount[s];
+            count++;
+        }
+    }
+
+    /**
+     * Adds a tile to a search of the current split.
+     *
+     * @param s     the search
+     * @param index row * cols + col of the tile
+     */
+    private void add(int s, int index) {
+        visited[index] = (epoch << 3) | s;
+        if (foundCount[s] == found[s].length) {
+            found[s] = Arrays.copyOf(found[s], foundCount[s] * 2);
+        }
+        found[s][foundCount[s]++] = index;
+    }
+
+    /**
+     * Finds the search a search was joined into.
+     *
+     * @param s the search
+     * @return the search still running for it
+     */
+    private int searchOf(int s) {
+        while (joined[s] != s) {
+            s = joined[s];
+        }
+        return s;
+    }
+
+    /**
+     * Joins two searches that reached the same piece, moving the smaller one's tiles
+     * into the larger one. Tiles the smaller one expanded are expanded again, which only
+     * finds tiles both already know.
+     *
+     * @param a a search
+     * @param b another search
+     * @return the search that continues
+     */
+    private int join(int a, int b) {
+        if (foundCount[a] < foundCount[b]) {
+            int t = a;
+            a = b;
+            b = t;
+        }
+        int need = foundCount[a] + foundCount[b];
+        if (need > found[a].length) {
+            found[a] = Arrays.copyOf(found[a], Math.max(need, found[a].length * 2));
+        }
+        System.arraycopy(found[b], 0, found[a], foundCount[a], foundCount[b]);
+        foundCount[a] = need;
+        joined[b] = a;
+        return a;
+    }
+
+    /**
+     * Gets the label of a tile, shared by all tiles of its component.
+     *
+     * @param row row index
+     * @param col column index
+     * @return the label
+     */
+    public int labelOf(int row, int col) {
+        return label[CellIndex.of(row, col, cols)];
+    }
+
+    /**
+     * Gets the number of tiles in the component of a tile.
+     *
+     * @param row row index
+     * @param col column index
+     * @return component size
+     */
+    public int sizeOf(int row, int col) {
+        return size[labelOf(row, col)];
+    }
+
+    /**
+     * Checks if two tiles belong to the same component.
+     *
+     * @param row1 row of the first tile
+     * @param col1 column of the first tile
+     * @param row2 row of the second tile
+     * @param col2 column of the second tile
+     * @return true if they are connected
+     */
+    public boolean connected(int row1, int col1, int row2, int col2) {
+        return labelOf(row1, col1) == labelOf(row2, col2);
+    }
+
+    /**
+     * Gets the number of components, counting unconnected tiles.
+     *
+     * @return component count
+     */
+    public int getComponentCount() {
+        return count;
+    }
+
+    /**
+     * Checks if a tile is connected to its neighbour in the given direction,
+     * according to the labelled masks.
+     *
+     * @param index row * cols + col
+     * @param d     direction (Side ordinal)
+     * @return true if both tiles have a connector on the shared side
+     */
+    private boolean linked(int index, int d) {
+        if ((masks[index] & (1 << d)) == 0) return false;
+        int next = topology.neighbour(index, d);
+        return next >= 0 && (masks[next] & (1 << ((d + 2) & 3))) != 0;
+    }
+
+    /**
+     * Merges the components of two tiles, giving the smaller one the label of the larger.
+     *
+     * @param a index of a tile
+     * @param b index of another tile
+     */
+    private void union(int a, int b) {
+        int big = label[a], small = label[b];
+        if (big == small) return;
+        if (size[big] < size[small]) {
+            int t = big;
+            big = small;
+            small = t;
+            b = a;
+        }
+        // the smaller component is connected on its own, relabelling marks it as visited
+        int head = 0, tail = 0;
+        label[b] = big;
+        queue[tail++] = b;
+        while (head < tail) {
+            int cur = queue[head++];
+            for (int d = 0; d < 4; d++) {
+                if (!linked(cur, d)) continue;
+                int next = topology.neighbour(cur, d);
+                if (label[next] != small) continue;
+                label[next] = big;
+                queue[tail++] = next;
+            }
+        }
+        size[big] += size[small];
+        free[freeCount++] = small;
+        count--;
+    }
+
+    /**
+     * Reads the connector mask of a tile from the board.
+     *
+     * @param index row * cols + col
+     * @return 4-bit connector mask
+     */
+    private int readMask(int index) {
+        return board.getConnectorMask(CellIndex.row(index, cols), CellIndex.col(index, cols));
+    }
+}
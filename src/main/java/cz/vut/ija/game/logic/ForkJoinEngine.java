@@ -0,0 +1,349 @@
+/**
+ * Authors:
+ * Filip Hladík (xhladi26)
+ * Maksim Samusevich (xsamus00)
+ * <p>
+ * Parallel flood fill over rectangular blocks of the board.
+ */
+package cz.vut.ija.game.logic;
+
+import cz.vut.ija.game.model.GameBoard;
+
+import java.util.Arrays;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Propagation engine that floods rectangular blocks of the board in parallel.
+ * <p>
+ * The board is split into square blocks, each flooded by at most one task at a time;
+ * only that task touches the block's powered state. When the flood reaches a tile of
+ * another block, the tile goes straight into that block's inbox and a task is forked for
+ * the block unless one is already scheduled, so the pool steals work as it appears and
+ * no block waits for the others. The run completes when the last task finds its inbox
+ * empty. The result is the same set of tiles a sequential BFS reaches.
+ */
+public class ForkJoinEngine implements PropagationEngine {
+    /**
+     * Default edge length of a block in tiles.
+     */
+    private static final int DEFAULT_BLOCK_SIZE = 256;
+    /**
+     * Pool the blocks are flooded on.
+     */
+    private final ForkJoinPool pool;
+    /**
+     * Edge length of a block in tiles.
+     */
+    private final int blockSize;
+
+    /**
+     * Creates an engine running on the common pool with the default block size.
+     */
+    public ForkJoinEngine() {
+        this(ForkJoinPool.commonPool(), DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates an engine with a specific pool and block size.
+     *
+     * @param pool      pool to run the blocks on
+     * @param blockSize edge length of a block in tiles
+     */
+    public ForkJoinEngine(ForkJoinPool pool, int blockSize) {
+        if (blockSize < 1) throw new IllegalArgumentException("blockSize>=1");
+        this.pool = pool;
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public void propagate(GameBoard board, int source, long[] powered) {
+        int rows = board.getRows();
+        int cols = board.getCols();
+        int blockRows = (rows + blockSize - 1) / blockSize;
+        int blockCols = (cols + blockSize - 1) / blockSize;
+        Block[] blocks = new Block[blockRows * blockCols];
+        for (int br = 0; br < blockRows; br++) {
+            for (int bc = 0; bc < blockCols; bc++) {
+                int r0 = br * blockSize, c0 = bc * blockSize;
+                blocks[br * blockCols + bc] = new Block(board, r0, c0,
+                        Math.min(blockSize, rows - r0), Math.min(blockSize, cols - c0));
+            }
+        }
+
+        Flood flood = new Flood(blocks, blockCols, cols, source);
+        pool.invoke(flood);
+
+        for (Block block : blocks) {
+            block.export(cols, powered);
+        }
+    }
+
+    /**
+     * Finds the block containing a tile.
+     *
+     * @param r         row of the tile
+     * @param c         column of the tile
+     * @param blockCols number of block columns
+     * @return index of the block
+     */
+    private int blockOf(int r, int c, int blockCols) {
+        return (r / blockSize) * blockCols + c / blockSize;
+    }
+
+    /**
+     * Root of one propagation, completed once every block task has finished.
+     */
+    private final class Flood extends CountedCompleter<Void> {
+        /**
+         * Serialization version, tasks are never serialized.
+         */
+        private static final long serialVersionUID = 1L;
+        /**
+         * Blocks of the board, row by row.
+         */
+        private final transient Block[] blocks;
+        /**
+         * Number of block columns and of board columns.
+         */
+        private final int blockCols, cols;
+        /**
+         * Index of the source tile.
+         */
+        private final int source;
+
+        /**
+         * Creates the root task.
+         *
+         * @param blocks    blocks of the board
+         * @param blockCols number of block columns
+         * @param cols      number of board columns
+         * @param source    index of the source tile
+         */
+        Flood(Block[] blocks, int blockCols, int cols, int source) {
+            this.blocks = blocks;
+            this.blockCols = blockCols;
+            this.cols = cols;
+            this.source = source;
+        }
+
+        @Override
+        public void compute() {
+            handOver(source);
+            tryComplete();
+        }
+
+        /**
+         * Passes a powered tile to its block and schedules the block if it is idle.
+         * The pending count grows before the fork, so the root cannot complete while
+         * the new task is outstanding.
+         *
+         * @param index row * cols + col of the tile
+         */
+        void handOver(int index) {
+            Block target = blocks[blockOf(index / cols, index % cols, blockCols)];
+            if (target.receive(index)) {
+                addToPendingCount(1);
+                new BlockTask(this, target).fork();
+            }
+        }
+    }
+
+    /**
+     * Floods one block until its inbox stays empty.
+     */
+    private static final class BlockTask extends CountedCompleter<Void> {
+        /**
+         * Serialization version, tasks are never serialized.
+         */
+        private static final long serialVersionUID = 1L;
+        /**
+         * The propagation this task belongs to.
+         */
+        private final transient Flood flood;
+        /**
+         * The block to flood.
+         */
+        private final transient Block block;
+
+        /**
+         * Creates a task for a scheduled block.
+         *
+         * @param flood the propagation
+         * @param block the block
+         */
+        BlockTask(Flood flood, Block block) {
+            super(flood);
+            this.flood = flood;
+            this.block = block;
+        }
+
+        @Override
+        public void compute() {
+            while (block.drain()) {
+                block.flood(flood);
+            }
+            tryComplete();
+        }
+    }
+
+    /**
+     * Rectangular part of the board with its own powered state.
+     * Only the task flooding the block touches bits and queue; the inbox and the
+     * scheduled flag are shared with the other blocks and guarded by the block's monitor.
+     */
+    private static final class Block {
+        /**
+         * The board being simulated.
+         */
+        private final GameBoard board;
+        /**
+         * Top-left corner and size of the block.
+         */
+        private final int r0, c0, height, width;
+        /**
+         * Powered bitset of the block, bit (localRow * width + localCol).
+         */
+        private final long[] bits;
+        /**
+         * Local indices of newly powered tiles waiting to be expanded; also the BFS queue.
+         */
+        private int[] queue = new int[16];
+        /**
+         * Number of tiles in the queue.
+         */
+        private int seedCount;
+        /**
+         * Board indices (row * cols + col) of tiles handed over by other blocks.
+         */
+        private int[] inbox = new int[16];
+        /**
+         * Number of tiles in the inbox.
+         */
+        private int inboxCount;
+        /**
+         * Whether a task for the block is forked or running.
+         */
+        private boolean scheduled;
+
+        /**
+         * Creates a block.
+         *
+         * @param board  the board
+         * @param r0     first row
+         * @param c0     first column
+         * @param height number of rows
+         * @param width  number of columns
+         */
+        Block(GameBoard board, int r0, int c0, int height, int width) {
+            this.board = board;
+            this.r0 = r0;
+            this.c0 = c0;
+            this.height = height;
+            this.width = width;
+            this.bits = new long[(height * width + 63) >>> 6];
+        }
+
+        /**
+         * Powers a tile of this block and queues it for expansion, called by the task
+         * flooding the block.
+         *
+         * @param r board row
+         * @param c board column
+         * @return true if the tile was not powered before
+         */
+        boolean offer(int r, int c) {
+            int local = (r - r0) * width + (c - c0);
+            if ((bits[local >>> 6] & (1L << local)) != 0) return false;
+            bits[local >>> 6] |= 1L << local;
+            if (seedCount == queue.length) {
+                queue = Arrays.copyOf(queue, seedCount * 2);
+            }
+            queue[seedCount++] = local;
+            return true;
+        }
+
+        /**
+         * Adds a tile reached from another block to the inbox.
+         *
+         * @param index row * cols + col of the tile
+         * @return true if the block was idle and a task has to be forked for it
+         */
+        synchronized boolean receive(int index) {
+            if (inboxCount == inbox.length) {
+                inbox = Arrays.copyOf(inbox, inboxCount * 2);
+            }
+            inbox[inboxCount++] = index;
+            if (scheduled) return false;
+            scheduled = true;
+            return true;
+        }
+
+        /**
+         * Moves the inbox into the queue, or marks the block idle if the inbox is empty.
+         *
+         * @return true if there are tiles to flood
+         */
+        boolean drain() {
+            int cols = board.getCols();
+            synchronized (this) {
+                if (inboxCount == 0) {
+                    scheduled = false;
+                    return false;
+                }
+                for (int i = 0; i < inboxCount; i++) {
+                    offer(inbox[i] / cols, inbox[i] % cols);
+                }
+                inboxCount = 0;
+            }
+            return true;
+        }
+
+        /**
+         * Runs a BFS inside the block from the queued tiles, handing tiles of other
+         * blocks over as soon as they are reached.
+         *
+         * @param flood the propagation
+         */
+        void flood(Flood flood) {
+            int head = 0;
+            int cols = board.getCols();
+            while (head < seedCount) {
+                int local = queue[head++];
+                int r = r0 + local / width, c = c0 + local % width;
+                int mask = board.getConnectorMask(r, c);
+                for (int d = 0; d < 4; d++) {
+                    if ((mask & (1 << d)) == 0) continue;
+                    int nr = r + (d == 0 ? -1 : d == 2 ? 1 : 0);
+                    int nc = c + (d == 1 ? 1 : d == 3 ? -1 : 0);
+                    if (nr < 0 || nr >= board.getRows() || nc < 0 || nc >= cols) continue;
+                    if ((board.getConnectorMask(nr, nc) & (1 << ((d + 2) & 3))) == 0) continue;
+                    if (nr >= r0 && nr < r0 + height && nc >= c0 && nc < c0 + width) {
+                        offer(nr, nc);
+                    } else {
+                        flood.handOver(nr * cols + nc);
+                    }
+                }
+            }
+            seedCount = 0;
+        }
+
+        /**
+         * Copies the powered tiles of this block into the board-wide bitset.
+         *
+         * @param cols    number of board columns
+         * @param powered bitset to fill, bit (row * cols + col)
+         */
+        void export(int cols, long[] powered) {
+            for (int w = 0; w < bits.length; w++) {
+                long word = bits[w];
+                while (word != 0) {
+                    int local = (w << 6) + Long.numberOfTrailingZeros(word);
+                    int index = (r0 + local / width) * cols + c0 + local % width;
+                    powered[index >>> 6] |= 1L << index;
+                    word &= word - 1;
+                }
+            }
+        }
+    }
+}
@@ -7,19 +7,50 @@
  */
 package cz.vut.ija.game.logic;
 
+import cz.vut.ija.game.model.CellIndex;
 import cz.vut.ija.game.model.GameBoard;
 import cz.vut.ija.game.model.Position;
-import cz.vut.ija.game.model.Side;
-import cz.vut.ija.game.model.Tile;
+import cz.vut.ija.game.model.PowerObserver;
+import cz.vut.ija.game.model.TileKind;
+import cz.vut.ija.game.model.Topology;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Simulator to determine which tiles are powered by the source.
  * Performs a flood-fill from the source tile, following matching connections.
+ * <p>
+ * Besides the full flood-fill, the simulator remembers through which side each
+ * powered tile received its power. This forms a spanning tree rooted at the source,
+ * which lets {@link #update(int, int)} re-evaluate only the region affected by a
+ * single changed tile. The direction is stored in 2 bits per tile and is only
+ * meaningful for powered tiles other than the source.
+ * <p>
+ * Tiles are addressed by their index row * cols + col (see {@link CellIndex}). The powered state is a dense
+ * bitset with one bit per tile, so lookups and propagation do not allocate per tile.
+ * Directions are Side ordinals (NORTH = 0, EAST = 1, SOUTH = 2, WEST = 3) and connectors
+ * are read as 4-bit masks from {@link GameBoard#getConnectorMask(int, int)}.
+ * Neighbours are looked up in the board's {@link Topology}, taken when the simulator is created.
+ * <p>
+ * A different {@link PropagationEngine} can be selected for the full propagation, e.g.
+ * {@link BitParallelEngine} for very large boards. Such engines do not record where the
+ * power came from, so {@link #update(int, int)} then runs a full propagation as well.
+ * They only support plain grids.
+ * <p>
+ * Registered {@link PowerObserver}s are told exactly which tiles turned on and off
+ * by each propagation.
+ * <p>
+ * The simulator also keeps a bitset of the bulbs and a running count of the lit ones,
+ * updated whenever a tile's power changes, so victory is known without scanning the board.
+ * <p>
+ * {@link #probeRotations(int, int)} answers what-if questions about a single tile
+ * on top of the current powered state, without touching the board.
+ * <p>
+ * {@link #getComponents()} labels every wire network, powered or not. The labels are
+ * created by the first call and then kept up to date by update() and propagate().
  */
 public class GameSimulator {
     /**
@@ -27,9 +58,77 @@ public class GameSimulator {
      */
     private final GameBoard board;
     /**
-     * Set of positions that have power.
+     * Engine used by propagate(), or null for the built-in BFS.
+     */
+    private final PropagationEngine engine;
+    /**
+     * Number of rows and columns of the board.
+     */
+    private final int rows, cols;
+    /**
+     * Neighbourhood of the board's cells.
+     */
+    private final Topology topology;
+    /**
+     * Bitset of powered tiles, bit (row * cols + col).
+     */
+    private final long[] powered;
+    /**
+     * For every tile the direction its power came from, 2 bits per tile (32 tiles per word).
+     */
+    private final long[] parent;
+    /**
+     * Index of the source used by the last propagate(), or -1 if there is none.
+     */
+    private int source = -1;
+    /**
+     * Whether propagate() has been run at least once.
+     */
+    private boolean propagated;
+    /**
+     * Work queue of tile indices, grown on demand.
+     */
+    private int[] queue = new int[64];
+    /**
+     * Scratch list of tile indices that lost power, grown on demand.
+     */
+    private int[] lost = new int[64];
+    /**
+     * Observers notified about power changes.
+     */
+    private final List<PowerObserver> observers = new ArrayList<>();
+    /**
+     * Powered state before a full propagation, only used when there are observers.
+     */
+    private long[] previous;
+    /**
+     * Bitset marking the tiles in lost[] while an update is reported or a probe runs.
+     */
+    private long[] lostMark;
+    /**
+     * Bitset of the tiles reached by the current probe, only used by probeRotations().
+     */
+    private long[] probed;
+    /**
+     * Bitset of tiles that are bulbs, bit (row * cols + col).
+     */
+    private final long[] bulbs;
+    /**
+     * Number of bulbs on the board.
+     */
+    private int bulbCount;
+    /**
+     * Number of powered bulbs.
+     */
+    private int litBulbs;
+    /**
+     * Whether all bulbs were lit after the last propagation.
+     */
+    private boolean allLit;
+    /**
+     * Labels of all wire networks, or null until getComponents() is called.
      */
-    private final Set<Position> powered = new HashSet<>();
+    private ComponentLabels components;
 
     /**
      * Constructs the simulator for the given game board.
@@ -37,37 +136,604 @@ public class GameSimulator {
      * @param board the game board model
      */
     public GameSimulator(GameBoard board) {
+        this(board, null);
+    }
+
+    /**
+     * Constructs the simulator for the given game board with a specific propagation engine.
+     *
+     * @param board  the game board model
+     * @param engine engine for full propagations, or null for the built-in BFS
+     * @throws IllegalArgumentException if an engine is given for a board that wraps around
+     */
+    public GameSimulator(GameBoard board, PropagationEngine engine) {
         this.board = board;
+        this.engine = engine;
+        this.rows = board.getRows();
+        this.cols = board.getCols();
+        this.topology = board.getTopology();
+        if (engine != null && topology.wraps())
+            throw new IllegalArgumentException("Propagation engines only support plain grids");
+        this.powered = new long[(rows * cols + 63) >>> 6];
+        this.parent = new long[(rows * cols + 31) >>> 5];
+        this.bulbs = new long[powered.length];
     }
 
     /**
      * Runs a BFS from the source tile, marking all reachable (powered) tiles.
      */
     public void propagate() {
-        powered.clear();
-        Position source = board.findSource();
-        if (source == null) return;
-
-        Deque<Position> queue = new ArrayDeque<>();
-        queue.add(source);
-        powered.add(source);
-
-        while (!queue.isEmpty()) {
-            Position cur = queue.poll();
-            Tile tile = board.getTile(cur.getRow(), cur.getCol());
-            for (Side s : Side.values()) {
-                // Only follow if this tile has a connector on side s
-                if (!tile.connects(s)) continue;
-                Position next = cur.step(s);
-                if (!board.inBounds(next) || powered.contains(next)) continue;
-                Tile neighbor = board.getTile(next.getRow(), next.getCol());
+        // labels follow update(), only changes made behind the simulator's back need a rebuild
+        if (components != null && !components.isCurrent()) {
+            components.rebuild();
+        }
+        if (!observers.isEmpty()) {
+            if (previous == null) {
+                previous = new long[powered.length];
+            }
+            System.arraycopy(powered, 0, previous, 0, powered.length);
+        }
+        runPropagation();
+        if (!observers.isEmpty()) {
+            reportDifference();
+        }
+        checkAllLit();
+    }
+
+    /**
+     * Recomputes the powered state of the whole board.
+     */
+    private void runPropagation() {
+        Arrays.fill(powered, 0L);
+        litBulbs = 0;
+        indexBulbs();
+        propagated = true;
+        Position src = board.findSource();
+        source = src == null ? -1 : CellIndex.of(src, cols);
+        if (source < 0) return;
+        if (engine != null) {
+            engine.propagate(board, source, powered);
+            for (int w = 0; w < powered.length; w++) {
+                litBulbs += Long.bitCount(powered[w] & bulbs[w]);
+            }
+            return;
+        }
+
+        setPowered(source);
+        queue[0] = source;
+        flood(1);
+    }
+
+    /**
+     * Re-evaluates the powered state after the tile at (row, col) has changed.
+     * <p>
+     * Only the part of the board affected by the change is visited: tiles that received
+     * their power through the changed tile are unpowered, and then everything that is
+     * connected to the remaining powered tiles is powered again. Falls back to a full
+     * {@link #propagate()} when the source itself is involved.
+     *
+     * @param row row of the changed tile
+     * @param col column of the changed tile
+     */
+    public void update(int row, int col) {
+        updateTiles(new int[]{CellIndex.of(row, col, cols)});
+    }
+
+    /**
+     * Re-evaluates the powered state after several tiles have changed at once,
+     * e.g. by {@link GameBoard#batch(Runnable)}.
+     * <p>
+     * All affected subtrees are unpowered first and the board is flooded only once,
+     * so observers receive a single power change for the whole batch.
+     *
+     * @param changed positions of the changed tiles
+     */
+    public void update(Collection<Position> changed) {
+        int[] indices = new int[changed.size()];
+        int n = 0;
+        for (Position p : changed) {
+            indices[n++] = CellIndex.of(p, cols);
+        }
+        updateTiles(indices);
+    }
+
+    /**
+     * Common part of both update() variants.
+     *
+     * @param changed indices of the changed tiles
+     */
+    private void updateTiles(int[] changed) {
+        // A rotated, added or removed source changes the root of the power tree,
+        // and other engines do not build the tree at all
+        boolean full = !propagated || engine != null;
+        for (int i = 0; i < changed.length && !full; i++) {
+            int index = changed[i];
+            full = index == source || board.getTileKind(CellIndex.row(index, cols), CellIndex.col(index, cols)) == TileKind.SOURCE;
+        }
+        if (components != null) {
+            for (int index : changed) {
+                components.update(index);
+            }
+        }
+        if (full) {
+            propagate();
+            return;
+        }
+
+        int count = 0;
+        for (int index : changed) {
+            // The tile may have been replaced by a tile of another kind
+            setBulb(index, board.getTileKind(CellIndex.row(index, cols), CellIndex.col(index, cols)) == TileKind.BULB);
+            if (isPowered(index)) {
+                // Everything powered through the changed tile has to find a new path
+                count = unpowerSubtree(index, count);
+            }
+        }
+        // Each lost or changed tile is a potential seed, make sure the queue can hold all of them
+        if (queue.length < count + changed.length) {
+            queue = new int[Math.max(count + changed.length, queue.length * 2)];
+        }
+        int seeds = 0;
+        for (int i = 0; i < count; i++) {
+            if (!isPowered(lost[i]) && reconnect(lost[i])) {
+                queue[seeds++] = lost[i];
+            }
+        }
+        for (int index : changed) {
+            // An unpowered tile had no connection to the powered tree, so it can only gain power
+            if (!isPowered(index) && reconnect(index)) {
+                queue[seeds++] = index;
+            }
+        }
+        int tail = flood(seeds);
+        if (!observers.isEmpty()) {
+            reportUpdate(count, tail);
+        }
+        checkAllLit();
+    }
+
+    /**
+     * Computes what would be powered if the tile at (row, col) were turned to each of
+     * its four rotations, without changing the board or the simulator state.
+     * <p>
+     * Tiles that are powered through another path than the probed tile keep their
+     * power in every rotation, so only the probed tile's subtree and whatever it can
+     * reach is flooded again. When the probed tile is the source, or an engine without
+     * the power tree is used, each rotation is flooded from the source instead.
+     *
+     * @param row row of the probed tile
+     * @param col column of the probed tile
+     * @return outcomes for the rotations 0, 90, 180 and 270 degrees, in this order
+     * @throws IllegalStateException if propagate() has not been run yet
+     */
+    public RotationOutcome[] probeRotations(int row, int col) {
+        if (!propagated)
+            throw new IllegalStateException("propagate() has not been run yet");
+        int cell = CellIndex.of(row, col, cols);
+        TileKind kind = board.getTileKind(row, col);
+        boolean fromSource = engine != null || cell == source;
+
+        if (lostMark == null) {
+            lostMark = new long[powered.length];
+        }
+        if (probed == null) {
+            probed = new long[powered.length];
+        }
+        // Mark the tiles that may lose power, the rest forms the fixed base
+        int count = 0;
+        if (!fromSource && isPowered(cell)) {
+            count = markSubtree(cell);
+        }
+        int basePowered = 0, baseLit = 0;
+        if (!fromSource) {
+            for (int w = 0; w < powered.length; w++) {
+                long base = powered[w] & ~lostMark[w];
+                basePowered += Long.bitCount(base);
+                baseLit += Long.bitCount(base & bulbs[w]);
+            }
+        }
+        if (queue.length < count + 1) {
+            queue = new int[Math.max(count + 1, queue.length * 2)];
+        }
+
+        RotationOutcome[] outcomes = new RotationOutcome[4];
+        for (int step = 0; step < 4; step++) {
+            int mask = kind.getMask(step * 90);
+            int seeds = 0;
+            if (fromSource) {
+                if (source >= 0) {
+                    queue[seeds++] = source;
+                }
+            } else if (count == 0) {
+                if (touchesBase(cell, cell, mask)) {
+                    queue[seeds++] = cell;
+                }
+            } else {
+                for (int i = 0; i < count; i++) {
+                    if (touchesBase(lost[i], cell, mask)) {
+                        queue[seeds++] = lost[i];
+                    }
+                }
+            }
+            for (int i = 0; i < seeds; i++) {
+                probed[queue[i] >>> 6] |= 1L << queue[i];
+            }
+            int tail = probeFlood(seeds, cell, mask, fromSource);
+            int lit = baseLit;
+            for (int i = 0; i < tail; i++) {
+                int index = queue[i];
+                if ((bulbs[index >>> 6] & (1L << index)) != 0) lit++;
+                probed[index >>> 6] &= ~(1L << index);
+            }
+            outcomes[step] = new RotationOutcome(step * 90, basePowered + tail, lit, lit == bulbCount);
+        }
+
+        for (int i = 0; i < count; i++) {
+            lostMark[lost[i] >>> 6] &= ~(1L << lost[i]);
+        }
+        return outcomes;
+    }
+
+    /**
+     * Gets the labels of all connected wire networks on the board, powered or not.
+     * The first call labels the whole board; afterwards the labels follow every
+     * update() and propagate() of this simulator.
+     *
+     * @return the component labels
+     */
+    public ComponentLabels getComponents() {
+        if (components == null) {
+            components = new ComponentLabels(board, topology);
+        }
+        return components;
+    }
+
+    /**
+     * Collects the given tile and every tile that received its power through it
+     * into lost[] and marks them in lostMark, without changing their power.
+     *
+     * @param root index of a powered tile
+     * @return number of collected tiles
+     */
+    private int markSubtree(int root) {
+        int count = 0;
+        lost[count++] = root;
+        lostMark[root >>> 6] |= 1L << root;
+        for (int i = 0; i < count; i++) {
+            int cur = lost[i];
+            for (int d = 0; d < 4; d++) {
+                int next = topology.neighbour(cur, d);
+                if (next < 0 || next == source || !isPowered(next) || parentOf(next) != ((d + 2) & 3)) continue;
+                if (count == lost.length) {
+                    lost = Arrays.copyOf(lost, count * 2);
+                }
+                lost[count++] = next;
+                lostMark[next >>> 6] |= 1L << next;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks if a tile is connected to a tile that keeps its power during a probe.
+     *
+     * @param index index of the tile
+     * @param cell  index of the probed tile
+     * @param mask  connectors of the probed tile
+     * @return true if the tile would be powered by the base
+     */
+    private boolean touchesBase(int index, int cell, int mask) {
+        int own = index == cell ? mask : maskAt(index);
+        for (int d = 0; d < 4; d++) {
+            if ((own & (1 << d)) == 0) continue;
+            int next = topology.neighbour(index, d);
+            if (next < 0 || !isPowered(next) || (lostMark[next >>> 6] & (1L << next)) != 0) continue;
+            int theirs = next == cell ? mask : maskAt(next);
+            if ((theirs & (1 << ((d + 2) & 3))) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Floods from queue[0..tail) during a probe, marking reached tiles in probed
+     * instead of powering them.
+     *
+     * @param tail       number of seeds in the queue, already marked
+     * @param cell       index of the probed tile
+     * @param mask       connectors of the probed tile
+     * @param fromSource whether the base is empty
+     * @return number of tiles in the queue afterwards
+     */
+    private int probeFlood(int tail, int cell, int mask, boolean fromSource) {
+        int head = 0;
+        while (head < tail) {
+            int cur = queue[head++];
+            int own = cur == cell ? mask : maskAt(cur);
+            for (int d = 0; d < 4; d++) {
+                if ((own & (1 << d)) == 0) continue;
+                int next = topology.neighbour(cur, d);
+                if (next < 0 || (probed[next >>> 6] & (1L << next)) != 0) continue;
+                // Tiles of the base are powered already
+                if (!fromSource && isPowered(next) && (lostMark[next >>> 6] & (1L << next)) == 0) continue;
+                int theirs = next == cell ? mask : maskAt(next);
+                if ((theirs & (1 << ((d + 2) & 3))) != 0) {
+                    probed[next >>> 6] |= 1L << next;
+                    if (tail == queue.length) {
+                        queue = Arrays.copyOf(queue, tail * 2);
+                    }
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return tail;
+    }
+
+    /**
+     * Rebuilds the bulb bitset from the board.
+     */
+    private void indexBulbs() {
+        Arrays.fill(bulbs, 0L);
+        bulbCount = board.markKind(TileKind.BULB, bulbs);
+    }
+
+    /**
+     * Adds a tile to or removes it from the bulb bitset, keeping the counters in sync.
+     *
+     * @param index  row * cols + col
+     * @param isBulb whether the tile is a bulb now
+     */
+    private void setBulb(int index, boolean isBulb) {
+        boolean wasBulb = (bulbs[index >>> 6] & (1L << index)) != 0;
+        if (wasBulb == isBulb) return;
+        bulbs[index >>> 6] ^= 1L << index;
+        int delta = isBulb ? 1 : -1;
+        bulbCount += delta;
+        if (isPowered(index)) {
+            litBulbs += delta;
+        }
+    }
+
+    /**
+     * Announces the moment all bulbs become lit.
+     */
+    private void checkAllLit() {
+        boolean now = allBulbsLit();
+        if (now && !allLit) {
+            for (PowerObserver o : observers) {
+                o.allBulbsLit();
+            }
+        }
+        allLit = now;
+    }
+
+    /**
+     * Reports the changes made by update(): lost[0..count) were powered before,
+     * queue[0..tail) are powered now.
+     *
+     * @param count number of tiles that were unpowered
+     * @param tail  number of tiles that were powered
+     */
+    private void reportUpdate(int count, int tail) {
+        if (lostMark == null) {
+            lostMark = new long[powered.length];
+        }
+        for (int i = 0; i < count; i++) {
+            lostMark[lost[i] >>> 6] |= 1L << lost[i];
+        }
+        int[] on = new int[tail];
+        int onCount = 0;
+        for (int i = 0; i < tail; i++) {
+            int index = queue[i];
+            if ((lostMark[index >>> 6] & (1L << index)) == 0) {
+                on[onCount++] = index;
+            }
+        }
+        int[] off = new int[count];
+        int offCount = 0;
+        for (int i = 0; i < count; i++) {
+            int index = lost[i];
+            lostMark[index >>> 6] &= ~(1L << index);
+            if (!isPowered(index)) {
+                off[offCount++] = index;
+            }
+        }
+        fire(Arrays.copyOf(on, onCount), Arrays.copyOf(off, offCount));
+    }
+
+    /**
+     * Reports the difference between the previous and the current powered state.
+     */
+    private void reportDifference() {
+        int[] on = new int[16], off = new int[16];
+        int onCount = 0, offCount = 0;
+        for (int w = 0; w < powered.length; w++) {
+            long diff = powered[w] ^ previous[w];
+            while (diff != 0) {
+                int index = (w << 6) + Long.numberOfTrailingZeros(diff);
+                if (isPowered(index)) {
+                    if (onCount == on.length) on = Arrays.copyOf(on, onCount * 2);
+                    on[onCount++] = index;
+                } else {
+                    if (offCount == off.length) off = Arrays.copyOf(off, offCount * 2);
+                    off[offCount++] = index;
+                }
+                diff &= diff - 1;
+            }
+        }
+        fire(Arrays.copyOf(on, onCount), Arrays.copyOf(off, offCount));
+    }
+
+    /**
+     * Notifies observers about a power change, if there is one.
+     *
+     * @param on  tiles that became powered
+     * @param off tiles that lost power
+     */
+    private void fire(int[] on, int[] off) {
+        if (on.length == 0 && off.length == 0) return;
+        for (PowerObserver o : observers) {
+            o.powerChanged(on, off);
+        }
+    }
+
+    /**
+     * Adds an observer to be notified of power changes.
+     *
+     * @param o observer to add
+     */
+    public void addPowerObserver(PowerObserver o) {
+        observers.add(o);
+    }
+
+    /**
+     * Continues the BFS from the powered tiles in queue[0..tail), powering every
+     * reachable unpowered tile.
+     *
+     * @param tail number of tiles already in the queue
+     * @return number of tiles in the queue afterwards, all of them powered
+     */
+    private int flood(int tail) {
+        int head = 0;
+        while (head < tail) {
+            int cur = queue[head++];
+            int mask = maskAt(cur);
+            for (int d = 0; d < 4; d++) {
+                // Only follow if this tile has a connector on side d
+                if ((mask & (1 << d)) == 0) continue;
+                int next = topology.neighbour(cur, d);
+                if (next < 0 || isPowered(next)) continue;
                 // Neighbor must have opposite connector
-                if (neighbor.connects(s.opposite())) {
-                    powered.add(next);
-                    queue.add(next);
+                int back = (d + 2) & 3;
+                if ((maskAt(next) & (1 << back)) != 0) {
+                    setPowered(next);
+                    setParent(next, back);
+                    if (tail == queue.length) {
+                        queue = Arrays.copyOf(queue, tail * 2);
+                    }
+                    queue[tail++] = next;
                 }
             }
         }
+        return tail;
+    }
+
+    /**
+     * Unpowers the given tile and every tile that received its power through it.
+     * The unpowered tiles are appended to lost[], root first.
+     *
+     * @param root  index of the tile whose subtree loses power
+     * @param count number of tiles already in lost[]
+     * @return number of tiles in lost[] afterwards
+     */
+    private int unpowerSubtree(int root, int count) {
+        int first = count;
+        if (count == lost.length) {
+            lost = Arrays.copyOf(lost, count * 2);
+        }
+        lost[count++] = root;
+        clearPowered(root);
+        for (int i = first; i < count; i++) {
+            int cur = lost[i];
+            for (int d = 0; d < 4; d++) {
+                int next = topology.neighbour(cur, d);
+                // A child points back at the tile it was powered from
+                if (next < 0 || next == source || !isPowered(next) || parentOf(next) != ((d + 2) & 3)) continue;
+                clearPowered(next);
+                if (count == lost.length) {
+                    lost = Arrays.copyOf(lost, count * 2);
+                }
+                lost[count++] = next;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Powers an unpowered tile if it is connected to a powered neighbour.
+     *
+     * @param index index of the tile to reconnect
+     * @return true if the tile became powered
+     */
+    private boolean reconnect(int index) {
+        int mask = maskAt(index);
+        for (int d = 0; d < 4; d++) {
+            if ((mask & (1 << d)) == 0) continue;
+            int next = topology.neighbour(index, d);
+            if (next < 0 || !isPowered(next)) continue;
+            if ((maskAt(next) & (1 << ((d + 2) & 3))) != 0) {
+                setPowered(index);
+                setParent(index, d);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the connectors of the tile with the given index.
+     *
+     * @param index row * cols + col
+     * @return 4-bit connector mask
+     */
+    private int maskAt(int index) {
+        return board.getConnectorMask(CellIndex.row(index, cols), CellIndex.col(index, cols));
+    }
+
+    /**
+     * Gets the direction a powered tile received its power from.
+     *
+     * @param index row * cols + col
+     * @return direction (Side ordinal)
+     */
+    private int parentOf(int index) {
+        return (int) (parent[index >>> 5] >>> ((index & 31) << 1)) & 3;
+    }
+
+    /**
+     * Records the direction a tile received its power from.
+     *
+     * @param index row * cols + col
+     * @param d     direction (Side ordinal)
+     */
+    private void setParent(int index, int d) {
+        int shift = (index & 31) << 1;
+        parent[index >>> 5] = (parent[index >>> 5] & ~(3L << shift)) | ((long) d << shift);
+    }
+
+    /**
+     * Tests the powered bit of a tile.
+     *
+     * @param index row * cols + col
+     * @return true if the tile is powered
+     */
+    private boolean isPowered(int index) {
+        return (powered[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Sets the powered bit of a tile.
+     *
+     * @param index row * cols + col
+     */
+    private void setPowered(int index) {
+        powered[index >>> 6] |= 1L << index;
+        if ((bulbs[index >>> 6] & (1L << index)) != 0) {
+            litBulbs++;
+        }
+    }
+
+    /**
+     * Clears the powered bit of a tile.
+     *
+     * @param index row * cols + col
+     */
+    private void clearPowered(int index) {
+        powered[index >>> 6] &= ~(1L << index);
+        if ((bulbs[index >>> 6] & (1L << index)) != 0) {
+            litBulbs--;
+        }
     }
 
     /**
@@ -78,6 +744,43 @@ public class GameSimulator {
      * @return true if tile is powered
      */
     public boolean isPowered(int r, int c) {
-        return powered.contains(new Position(r, c));
+        return isPowered(CellIndex.of(r, c, cols));
+    }
+
+    /**
+     * Gets the number of bulbs on the board.
+     *
+     * @return bulb count
+     */
+    public int getBulbCount() {
+        return bulbCount;
+    }
+
+    /**
+     * Gets the number of powered bulbs.
+     *
+     * @return lit bulb count
+     */
+    public int getLitBulbCount() {
+        return litBulbs;
+    }
+
+    /**
+     * Checks in constant time whether every bulb is powered.
+     *
+     * @return true if no bulb is unlit
+     */
+    public boolean allBulbsLit() {
+        return litBulbs == bulbCount;
+    }
+
+    /**
+     * Exports the powered state of the whole board.
+     * Bit (row * cols + col) of the returned words is set when that tile is powered.
+     *
+     * @return a copy of the powered bitset
+     */
+    public long[] getPoweredBits() {
+        return powered.clone();
     }
 }
@@ -0,0 +1,26 @@
+/**
+ * Authors:
+ * Filip Hladík (xhladi26)
+ * Maksim Samusevich (xsamus00)
+ * <p>
+ * Interface for alternative power propagation algorithms.
+ */
+package cz.vut.ija.game.logic;
+
+import cz.vut.ija.game.model.GameBoard;
+
+/**
+ * Strategy that computes the full powered state of a board for {@link GameSimulator}.
+ * Implementations must produce exactly the tiles the simulator's BFS would reach.
+ * Only plain grids are supported, see {@link cz.vut.ija.game.model.Topology#square(int, int)}.
+ */
+public interface PropagationEngine {
+    /**
+     * Marks every tile connected to the source.
+     *
+     * @param board   the board to simulate
+     * @param source  index (row * cols + col) of the source tile, never negative
+     * @param powered cleared bitset to fill, bit (row * cols + col) per tile
+     */
+    void propagate(GameBoard board, int source, long[] powered);
+}
@@ -0,0 +1,20 @@
+/**
+ * Authors:
+ * Filip Hladík (xhladi26)
+ * Maksim Samusevich (xsamus00)
+ * <p>
+ * Record used to report the result of a what-if rotation
+ */
+package cz.vut.ija.game.logic;
+
+/**
+ * What the board would look like if a single tile were set to a given rotation,
+ * see {@link GameSimulator#probeRotations(int, int)}.
+ *
+ * @param rotation      rotation of the probed tile in degrees
+ * @param poweredCount  number of tiles that would be powered
+ * @param litBulbs      number of bulbs that would be lit
+ * @param allBulbsLit   whether every bulb would be lit
+ */
+public record RotationOutcome(int rotation, int poweredCount, int litBulbs, boolean allBulbsLit) {
+}
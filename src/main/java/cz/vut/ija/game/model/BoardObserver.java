@@ -7,6 +7,8 @@
  */
 package cz.vut.ija.game.model;
 
+import java.util.Set;
+
 /**
  * Interface for observing changes to the board.
  */
@@ -19,4 +21,17 @@ public interface BoardObserver {
      * @param col column of changed tile
      */
     void tileChanged(int row, int col);
+
+    /**
+     * Called once after a batch of changes, see {@link GameBoard#batch(Runnable)}, and for
+     * every delivery of collected changes, see {@link GameBoard#setNotificationExecutor(java.util.concurrent.Executor)}.
+     * By default every changed tile is reported through {@link #tileChanged(int, int)}.
+     *
+     * @param changed positions of the changed tiles
+     */
+    default void tilesChanged(Set<Position> changed) {
+        for (Position p : changed) {
+            tileChanged(p.getRow(), p.getCol());
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,244 @@
+/**
+ * Authors:
+ * Filip Hladík (xhladi26)
+ * Maksim Samusevich (xsamus00)
+ * <p>
+ * Immutable snapshot of the board state.
+ */
+package cz.vut.ija.game.model;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Persistent, immutable version of the tiles of a board.
+ * <p>
+ * Cells are packed (see {@link TileKind#cell(int)}) and stored in a trie: leaves hold
+ * 64 cells, inner nodes 32 children. Changing a cell copies only the path from the root
+ * to its leaf, so a new version costs O(log n) and shares everything else with the old
+ * one. Snapshots can be read from any thread.
+ */
+public final class BoardSnapshot {
+    /**
+     * Number of index bits resolved by a leaf.
+     */
+    private static final int LEAF_BITS = 6;
+    /**
+     * Number of index bits resolved by an inner node.
+     */
+    private static final int BRANCH_BITS = 5;
+    /**
+     * Mask of the child index within an inner node.
+     */
+    private static final int BRANCH_MASK = (1 << BRANCH_BITS) - 1;
+
+    /**
+     * Number of rows and columns of the board.
+     */
+    private final int rows, cols;
+    /**
+     * Number of index bits resolved by the inner nodes, 0 if the root is a leaf.
+     */
+    private final int shift;
+    /**
+     * Root of the trie, a byte[] leaf or an Object[] inner node.
+     */
+    private final Object root;
+
+    /**
+     * Creates a snapshot from an existing trie.
+     *
+     * @param rows  number of rows
+     * @param cols  number of columns
+     * @param shift index bits resolved by the inner nodes
+     * @param root  root of the trie
+     */
+    private BoardSnapshot(int rows, int cols, int shift, Object root) {
+        this.rows = rows;
+        this.cols = cols;
+        this.shift = shift;
+        this.root = root;
+    }
+
+    /**
+     * Builds a snapshot of the given cells.
+     *
+     * @param rows   number of rows
+     * @param cols   number of columns
+     * @param cellAt gives the packed cell of each index
+     * @return the snapshot
+     */
+    static BoardSnapshot build(int rows, int cols, IntUnaryOperator cellAt) {
+        int size = rows * cols;
+        int shift = 0;
+        while ((long) size > 1L << (LEAF_BITS + shift)) {
+            shift += BRANCH_BITS;
+        }
+        return new BoardSnapshot(rows, cols, shift, buildNode(shift, 0, size, cellAt));
+    }
+
+    /**
+     * Builds the subtree covering the cells from base on.
+     *
+     * @param shift  index bits resolved by the inner nodes below and including this one
+     * @param base   index of the first cell of the subtree
+     * @param size   number of cells of the board
+     * @param cellAt gives the packed cell of each index
+     * @return the subtree
+     */
+    private static Object buildNode(int shift, int base, int size, IntUnaryOperator cellAt) {
+        if (shift == 0) {
+            byte[] leaf = new byte[1 << LEAF_BITS];
+            for (int i = 0; i < leaf.length && base + i < size; i++) {
+                leaf[i] = (byte) cellAt.applyAsInt(base + i);
+            }
+            return leaf;
+        }
+        Object[] node = new Object[1 << BRANCH_BITS];
+        int span = 1 << (LEAF_BITS + shift - BRANCH_BITS);
+        for (int j = 0; j < node.length && base + j * span < size; j++) {
+            node[j] = buildNode(shift - BRANCH_BITS, base + j * span, size, cellAt);
+        }
+        return node;
+    }
+
+    /**
+     * Gets the number of rows.
+     *
+     * @return number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Gets the number of columns.
+     *
+     * @return number of columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Gets a packed cell.
+     *
+     * @param index row * cols + col
+     * @return the packed cell
+     */
+    public int getCell(int index) {
+        Object node = root;
+        for (int s = shift; s > 0; s -= BRANCH_BITS) {
+            node = ((Object[]) node)[(index >>> (LEAF_BITS + s - BRANCH_BITS)) & BRANCH_MASK];
+        }
+        return ((byte[]) node)[index & ((1 << LEAF_BITS) - 1)];
+    }
+
+    /**
+     * Gets the kind of the tile at specified position.
+     *
+     * @param row row index
+     * @param col column index
+     * @return the tile kind
+     */
+    public TileKind getTileKind(int row, int col) {
+        return TileKind.ofCell(getCell(row * cols + col));
+    }
+
+    /**
+     * Gets the rotation of the tile at specified position.
+     *
+     * @param row row index
+     * @param col column index
+     * @return rotation in degrees
+     */
+    public int getTileRotation(int row, int col) {
+        return TileKind.rotationOfCell(getCell(row * cols + col));
+    }
+
+    /**
+     * Gets the connectors of the tile at specified position.
+     *
+     * @param row row index
+     * @param col column index
+     * @return 4-bit connector mask
+     */
+    public int getConnectorMask(int row, int col) {
+        return TileKind.maskOfCell(getCell(row * cols + col));
+    }
+
+    /**
+     * Creates a version with one tile replaced.
+     *
+     * @param row      row index
+     * @param col      column index
+     * @param kind     kind of the new tile
+     * @param rotation rotation of the new tile in degrees
+     * @return the new version, sharing all other cells with this one
+     */
+    public BoardSnapshot with(int row, int col, TileKind kind, int rotation) {
+        int index = row * cols + col;
+        int[] indices = {index};
+        int cell = kind.cell(((rotation % 360) + 360) % 360);
+        return new BoardSnapshot(rows, cols, shift, setAll(root, shift, indices, 0, 1, i -> cell));
+    }
+
+    /**
+     * Creates a version with one tile set to a new rotation.
+     *
+     * @param row      row index
+     * @param col      column index
+     * @param rotation new rotation in degrees
+     * @return the new version, sharing all other cells with this one
+     */
+    public BoardSnapshot withRotation(int row, int col, int rotation) {
+        return with(row, col, getTileKind(row, col), rotation);
+    }
+
+    /**
+     * Creates a version with many cells changed, copying every touched node once.
+     *
+     * @param indices changed indices in ascending order, without duplicates
+     * @param count   number of indices
+     * @param cellAt  gives the new packed cell of each changed index
+     * @return the new version
+     */
+    BoardSnapshot withCells(int[] indices, int count, IntUnaryOperator cellAt) {
+        if (count == 0) return this;
+        return new BoardSnapshot(rows, cols, shift, setAll(root, shift, indices, 0, count, cellAt));
+    }
+
+    /**
+     * Copies a subtree with the cells indices[from..to) changed.
+     *
+     * @param node   root of the subtree
+     * @param shift  index bits resolved by the inner nodes below and including this one
+     * @param idx    changed indices in ascending order
+     * @param from   first changed index within the subtree
+     * @param to     end of the changed indices within the subtree
+     * @param cellAt gives the new packed cell of each changed index
+     * @return the copied subtree
+     */
+    private static Object setAll(Object node, int shift, int[] idx, int from, int to, IntUnaryOperator cellAt) {
+        if (shift == 0) {
+            byte[] leaf = ((byte[]) node).clone();
+            for (int i = from; i < to; i++) {
+                leaf[idx[i] & ((1 << LEAF_BITS) - 1)] = (byte) cellAt.applyAsInt(idx[i]);
+            }
+            return leaf;
+        }
+        Object[] copy = ((Object[]) node).clone();
+        int bits = LEAF_BITS + shift - BRANCH_BITS;
+        int i = from;
+        while (i < to) {
+            // all changes below the same child are applied together
+            int j = (idx[i] >>> bits) & BRANCH_MASK;
+            int end = i + 1;
+            while (end < to && ((idx[end] >>> bits) & BRANCH_MASK) == j) {
+                end++;
+            }
+            copy[j] = setAll(copy[j], shift - BRANCH_BITS, idx, i, end, cellAt);
+            i = end;
+        }
+        return copy;
+    }
+}
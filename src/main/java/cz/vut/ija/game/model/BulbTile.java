@@ -20,6 +20,11 @@ public class BulbTile extends Tile {
         return "B";
     }
 
+    @Override
+    public TileKind getKind() {
+        return TileKind.BULB;
+    }
+
     /**
      * Base connection side for the BulbTile.
      * By convention, at rotation=0 it connects downwards (SOUTH) - so the logic is the same as for the source tile.
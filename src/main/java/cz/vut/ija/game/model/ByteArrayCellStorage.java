@@ -0,0 +1,59 @@
+/**
+ * Authors:
+ * Filip Hladík (xhladi26)
+ * Maksim Samusevich (xsamus00)
+ * <p>
+ * Cell storage backed by a byte array.
+ */
+package cz.vut.ija.game.model;
+
+/**
+ * Stores each packed cell in one byte of a flat array.
+ */
+public class ByteArrayCellStorage implements CellStorage {
+    /**
+     * Packed cells, one byte per cell.
+     */
+    private final byte[] cells;
+
+    /**
+     * Creates a storage of the given size with every cell set to 0.
+     *
+     * @param size number of cells
+     */
+    public ByteArrayCellStorage(int size) {
+        this.cells = new byte[size];
+    }
+
+    /**
+     * Gets the number of cells.
+     *
+     * @return number of cells
+     */
+    @Override
+    public int size() {
+        return cells.length;
+    }
+
+    /**
+     * Reads a packed cell.
+     *
+     * @param index row * cols + col
+     * @return the packed cell
+     */
+    @Override
+    public int get(int index) {
+        return cells[index];
+    }
+
+    /**
+     * Writes a packed cell.
+     *
+     * @param index row * cols + col
+     * @param cell  the packed cell
+     */
+    @Override
+    public void set(int index, int cell) {
+        cells[index] = (byte) cell;
+    }
+}
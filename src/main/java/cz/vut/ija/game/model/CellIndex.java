@@ -0,0 +1,127 @@
+/**
+ * Authors:
+ * Filip Hladík (xhladi26)
+ * Maksim Samusevich (xsamus00)
+ * <p>
+ * Static helpers for packed cell coordinates.
+ */
+package cz.vut.ija.game.model;
+
+/**
+ * Packed int coordinates for hot loops, the allocation-free counterpart of {@link Position}.
+ * <p>
+ * A cell is addressed by its index row * cols + col. Neighbours are found by index
+ * arithmetic, with -1 standing for a step off the board. Directions are Side ordinals
+ * (NORTH = 0, EAST = 1, SOUTH = 2, WEST = 3).
+ */
+public final class CellIndex {
+    /**
+     * No instances, only static helpers.
+     */
+    private CellIndex() {
+    }
+
+    /**
+     * Packs a coordinate into an index.
+     *
+     * @param row  row index
+     * @param col  column index
+     * @param cols number of columns of the board
+     * @return row * cols + col
+     */
+    public static int of(int row, int col, int cols) {
+        return row * cols + col;
+    }
+
+    /**
+     * Packs a position into an index.
+     *
+     * @param p    the position
+     * @param cols number of columns of the board
+     * @return row * cols + col
+     */
+    public static int of(Position p, int cols) {
+        return p.getRow() * cols + p.getCol();
+    }
+
+    /**
+     * Gets the row of an index.
+     *
+     * @param index packed coordinate
+     * @param cols  number of columns of the board
+     * @return row index
+     */
+    public static int row(int index, int cols) {
+        return index / cols;
+    }
+
+    /**
+     * Gets the column of an index.
+     *
+     * @param index packed coordinate
+     * @param cols  number of columns of the board
+     * @return column index
+     */
+    public static int col(int index, int cols) {
+        return index % cols;
+    }
+
+    /**
+     * Unpacks an index into a position.
+     *
+     * @param index packed coordinate
+     * @param cols  number of columns of the board
+     * @return the position
+     */
+    public static Position toPosition(int index, int cols) {
+        return new Position(index / cols, index % cols);
+    }
+
+    /**
+     * Checks if a coordinate lies within the board.
+     *
+     * @param row  row index
+     * @param col  column index
+     * @param rows number of rows of the board
+     * @param cols number of columns of the board
+     * @return true if row in [0, rows) and col in [0, cols)
+     */
+    public static boolean inBounds(int row, int col, int rows, int cols) {
+        return row >= 0 && row < rows && col >= 0 && col < cols;
+    }
+
+    /**
+     * Steps from a cell to its neighbour in the given direction.
+     *
+     * @param index packed coordinate
+     * @param d     direction (Side ordinal)
+     * @param rows  number of rows of the board
+     * @param cols  number of columns of the board
+     * @return index of the neighbour, or -1 if it lies outside the board
+     */
+    public static int step(int index, int d, int rows, int cols) {
+        switch (d) {
+            case 0:
+                return index >= cols ? index - cols : -1;
+            case 1:
+                return index % cols != cols - 1 ? index + 1 : -1;
+            case 2:
+                return index + cols < rows * cols ? index + cols : -1;
+            default:
+                return index % cols != 0 ? index - 1 : -1;
+        }
+    }
+
+    /**
+     * Steps from a cell to its neighbour on the given side.
+     *
+     * @param index packed coordinate
+     * @param side  side to step to
+     * @param rows  number of rows of the board
+     * @param cols  number of columns of the board
+     * @return index of the neighbour, or -1 if it lies outside the board
+     */
+    public static int step(int index, Side side, int rows, int cols) {
+        return step(index, side.ordinal(), rows, cols);
+    }
+}
@@ -0,0 +1,39 @@
+/**
+ * Authors:
+ * Filip Hladík (xhladi26)
+ * Maksim Samusevich (xsamus00)
+ * <p>
+ * Interface for primitive storage of board cells.
+ */
+package cz.vut.ija.game.model;
+
+/**
+ * Flat storage of packed cells used by compact game boards.
+ * <p>
+ * Every cell holds a tile kind and rotation packed by {@link TileKind#cell(int)}.
+ * Cells are addressed by their index row * cols + col.
+ */
+public interface CellStorage {
+    /**
+     * Gets the number of cells.
+     *
+     * @return number of cells
+     */
+    int size();
+
+    /**
+     * Reads a packed cell.
+     *
+     * @param index row * cols + col
+     * @return the packed cell
+     */
+    int get(int index);
+
+    /**
+     * Writes a packed cell.
+     *
+     * @param index row * cols + col
+     * @param cell  the packed cell
+     */
+    void set(int index, int cell);
+}
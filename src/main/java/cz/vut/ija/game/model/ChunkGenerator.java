@@ -0,0 +1,25 @@
+/**
+ * Authors:
+ * Filip Hladík (xhladi26)
+ * Maksim Samusevich (xsamus00)
+ * <p>
+ * Callback interface for creating chunks of an endless board.
+ */
+package cz.vut.ija.game.model;
+
+/**
+ * Creates the initial content of a chunk of a {@link ChunkedBoard}.
+ * The same chunk coordinates must always produce the same content.
+ */
+@FunctionalInterface
+public interface ChunkGenerator {
+    /**
+     * Generates a chunk.
+     *
+     * @param chunkRow row of the chunk in the grid of chunks
+     * @param chunkCol column of the chunk in the grid of chunks
+     * @param size     number of rows and columns of the chunk
+     * @return size * size packed cells in row-major order, see {@link TileKind#cell(int)}
+     */
+    byte[] generate(int chunkRow, int chunkCol, int size);
+}
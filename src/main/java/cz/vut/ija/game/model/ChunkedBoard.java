@@ -0,0 +1,297 @@
+/**
+ * Authors:
+ * Filip Hladík (xhladi26)
+ * Maksim Samusevich (xsamus00)
+ * <p>
+ * Unbounded board made of lazily created chunks, used for the endless mode.
+ */
+package cz.vut.ija.game.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Unbounded grid of tiles split into square chunks.
+ * <p>
+ * A chunk is created by the {@link ChunkGenerator} the first time one of its tiles is
+ * read. At most maxLoaded chunks are kept in memory; the least recently used one is
+ * dropped when another is needed. A dropped chunk that the player changed is written to
+ * the spill directory and read back later, an unchanged one is simply generated again.
+ * Memory therefore depends on the active area, not on how far the player has scrolled.
+ * <p>
+ * Rows and columns may be negative. The game logic runs on a finite {@link #window(int, int, int, int)},
+ * a GameBoard whose cells read and write through to the chunks, so power flows across
+ * chunk borders within the window.
+ */
+public class ChunkedBoard {
+    /**
+     * Number of rows and columns of a chunk.
+     */
+    private final int chunkSize;
+    /**
+     * Maximum number of chunks kept in memory.
+     */
+    private final int maxLoaded;
+    /**
+     * Directory for changed chunks that were dropped from memory.
+     */
+    private final Path spillDirectory;
+    /**
+     * Creates chunks that were never changed.
+     */
+    private final ChunkGenerator generator;
+    /**
+     * Chunks in memory by their key, least recently used first.
+     */
+    private final LinkedHashMap<Long, Chunk> loaded;
+    /**
+     * Key of the chunk used last.
+     */
+    private long lastKey;
+    /**
+     * Chunk used last, or null.
+     */
+    private Chunk lastChunk;
+
+    /**
+     * A chunk in memory.
+     */
+    private static final class Chunk {
+        /**
+         * Packed cells, row-major.
+         */
+        final byte[] cells;
+        /**
+         * Whether a cell changed since the chunk was generated or read.
+         */
+        boolean dirty;
+
+        /**
+         * Creates a chunk from its cells.
+         *
+         * @param cells packed cells
+         */
+        Chunk(byte[] cells) {
+            this.cells = cells;
+        }
+    }
+
+    /**
+     * Creates an endless board.
+     *
+     * @param chunkSize      number of rows and columns of a chunk
+     * @param maxLoaded      maximum number of chunks kept in memory
+     * @param spillDirectory directory for changed chunks dropped from memory
+     * @param generator      creates the chunks
+     */
+    public ChunkedBoard(int chunkSize, int maxLoaded, Path spillDirectory, ChunkGenerator generator) {
+        if (chunkSize < 1 || maxLoaded < 1)
+            throw new IllegalArgumentException("chunkSize and maxLoaded must be positive");
+        this.chunkSize = chunkSize;
+        this.maxLoaded = maxLoaded;
+        this.spillDirectory = spillDirectory;
+        this.generator = generator;
+        this.loaded = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Chunk> eldest) {
+                if (size() <= ChunkedBoard.this.maxLoaded) return false;
+                spill(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Gets the number of rows and columns of a chunk.
+     *
+     * @return chunk size
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Gets the number of chunks currently in memory.
+     *
+     * @return loaded chunk count
+     */
+    public int getLoadedChunkCount() {
+        return loaded.size();
+    }
+
+    /**
+     * Reads a packed cell.
+     *
+     * @param row row index, may be negative
+     * @param col column index, may be negative
+     * @return the packed cell, see {@link TileKind#cell(int)}
+     */
+    public int getCell(int row, int col) {
+        return chunkAt(row, col).cells[offset(row, col)];
+    }
+
+    /**
+     * Writes a packed cell.
+     *
+     * @param row  row index, may be negative
+     * @param col  column index, may be negative
+     * @param cell the packed cell
+     */
+    public void setCell(int row, int col, int cell) {
+        Chunk chunk = chunkAt(row, col);
+        chunk.cells[offset(row, col)] = (byte) cell;
+        chunk.dirty = true;
+    }
+
+    /**
+     * Gets the kind of the tile at specified position.
+     *
+     * @param row row index
+     * @param col column index
+     * @return the tile kind
+     */
+    public TileKind getTileKind(int row, int col) {
+        return TileKind.ofCell(getCell(row, col));
+    }
+
+    /**
+     * Gets the rotation of the tile at specified position.
+     *
+     * @param row row index
+     * @param col column index
+     * @return rotation in degrees
+     */
+    public int getTileRotation(int row, int col) {
+        return TileKind.rotationOfCell(getCell(row, col));
+    }
+
+    /**
+     * Rotates a tile 90° clockwise.
+     *
+     * @param row row index
+     * @param col column index
+     */
+    public void rotateTile(int row, int col) {
+        int cell = getCell(row, col);
+        setCell(row, col, (cell & ~3) | ((cell + 1) & 3));
+    }
+
+    /**
+     * Creates a game board showing a rectangular part of the endless board.
+     * Reads and changes go straight to the chunks. The window's kind index and hash do not
+     * see changes made around it, so tiles should be changed through one window at a time.
+     * The window should not span more chunks than can be kept in memory.
+     *
+     * @param row0 row of the top-left tile
+     * @param col0 column of the top-left tile
+     * @param rows number of rows
+     * @param cols number of columns
+     * @return the window as a compact game board
+     */
+    public GameBoard window(int row0, int col0, int rows, int cols) {
+        return new GameBoard(rows, cols, new CellStorage() {
+            @Override
+            public int size() {
+                return rows * cols;
+            }
+
+            @Override
+            public int get(int index) {
+                return getCell(row0 + index / cols, col0 + index % cols);
+            }
+
+            @Override
+            public void set(int index, int cell) {
+                setCell(row0 + index / cols, col0 + index % cols, cell);
+            }
+        });
+    }
+
+    /**
+     * Gets the chunk containing a tile, loading or generating it if needed.
+     *
+     * @param row row index
+     * @param col column index
+     * @return the chunk
+     */
+    private Chunk chunkAt(int row, int col) {
+        int chunkRow = Math.floorDiv(row, chunkSize), chunkCol = Math.floorDiv(col, chunkSize);
+        long key = ((long) chunkRow << 32) | (chunkCol & 0xFFFFFFFFL);
+        if (lastChunk != null && key == lastKey) return lastChunk;
+        Chunk chunk = loaded.get(key);
+        if (chunk == null) {
+            chunk = load(chunkRow, chunkCol);
+            loaded.put(key, chunk);
+        }
+        lastKey = key;
+        lastChunk = chunk;
+        return chunk;
+    }
+
+    /**
+     * Gets the position of a tile within its chunk.
+     *
+     * @param row row index
+     * @param col column index
+     * @return index into the chunk's cells
+     */
+    private int offset(int row, int col) {
+        return Math.floorMod(row, chunkSize) * chunkSize + Math.floorMod(col, chunkSize);
+    }
+
+    /**
+     * Reads a spilled chunk back, or generates it if it was never changed.
+     *
+     * @param chunkRow row of the chunk
+     * @param chunkCol column of the chunk
+     * @return the chunk
+     */
+    private Chunk load(int chunkRow, int chunkCol) {
+        Path file = spillFile(chunkRow, chunkCol);
+        try {
+            if (Files.exists(file)) {
+                Chunk chunk = new Chunk(Files.readAllBytes(file));
+                // still differs from the generated content
+                chunk.dirty = true;
+                return chunk;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] cells = generator.generate(chunkRow, chunkCol, chunkSize);
+        if (cells.length != chunkSize * chunkSize)
+            throw new IllegalStateException("Generated chunk has a wrong size");
+        return new Chunk(cells);
+    }
+
+    /**
+     * Writes a chunk that is dropped from memory to the spill directory if it was changed.
+     *
+     * @param key   key of the chunk
+     * @param chunk the chunk
+     */
+    private void spill(long key, Chunk chunk) {
+        if (!chunk.dirty) return;
+        try {
+            Files.createDirectories(spillDirectory);
+            Files.write(spillFile((int) (key >> 32), (int) key), chunk.cells);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Gets the spill file of a chunk.
+     *
+     * @param chunkRow row of the chunk
+     * @param chunkCol column of the chunk
+     * @return path of the file
+     */
+    private Path spillFile(int chunkRow, int chunkCol) {
+        return spillDirectory.resolve("chunk_" + chunkRow + "_" + chunkCol + ".bin");
+    }
+}
@@ -0,0 +1,334 @@
+/**
+ * Authors:
+ * Filip Hladík (xhladi26)
+ * Maksim Samusevich (xsamus00)
+ * <p>
+ * Game board that can be read from background threads.
+ */
+package cz.vut.ija.game.model;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * Game board that background threads (solvers, hints) can read while another thread
+ * changes it.
+ * <p>
+ * Changes are serialized by the write lock of a {@link StampedLock}. Observers are notified
+ * after the lock is released, on the changing thread, so they may read the board freely.
+ * Reads of single tiles are optimistic: they take no lock and are only repeated under the
+ * read lock if a change happened meanwhile. Queries that build lazy indexes (kinds, hash,
+ * leaks, snapshots) hold the read lock and build under a separate monitor, so concurrent
+ * readers never build the same index twice. No read path takes the write lock, and a read
+ * nested in {@link #optimisticRead(Supplier)} reuses the read lock its thread already
+ * holds, so any query may be used inside it. A reader needing a consistent view of many
+ * tiles can use {@link #optimisticRead(Supplier)} or work on a {@link #snapshot()}.
+ * <p>
+ * Batches and observer registration are meant for the thread that changes the board.
+ */
+public class ConcurrentGameBoard extends GameBoard {
+    /**
+     * Lock guarding the tiles and the lazy indexes; writers update built indexes.
+     */
+    private final StampedLock lock = new StampedLock();
+    /**
+     * Monitor guarding the lazy indexes while readers build them, always taken after the
+     * read lock.
+     */
+    private final Object indexLock = new Object();
+    /**
+     * Number of read locks the current thread holds; a StampedLock is not reentrant, so
+     * nested reads must not lock again.
+     */
+    private final ThreadLocal<int[]> readHolds = ThreadLocal.withInitial(() -> new int[1]);
+
+    /**
+     * Creates a new game board with specified dimensions.
+     *
+     * @param rows number of rows
+     * @param cols number of columns
+     */
+    public ConcurrentGameBoard(int rows, int cols) {
+        super(rows, cols);
+    }
+
+    /**
+     * Creates a game board from an existing tile array.
+     *
+     * @param initial 2D array of tiles
+     */
+    public ConcurrentGameBoard(Tile[][] initial) {
+        super(initial);
+    }
+
+    /**
+     * Creates a compact game board on top of the given cell storage.
+     *
+     * @param rows  number of rows
+     * @param cols  number of columns
+     * @param cells storage holding rows * cols packed cells
+     */
+    public ConcurrentGameBoard(int rows, int cols, CellStorage cells) {
+        super(rows, cols, cells);
+    }
+
+    /**
+     * Runs a read-only computation against a consistent state of the board.
+     * It first runs without locking and is repeated under the read lock if the board
+     * changed meanwhile, so it must not have side effects.
+     *
+     * @param reader the computation
+     * @param <T>    type of the result
+     * @return the result computed from a consistent state
+     */
+    public <T> T optimisticRead(Supplier<T> reader) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                T result = reader.get();
+                if (lock.validate(stamp)) return result;
+            } catch (RuntimeException e) {
+                // an inconsistent state may make the reader fail, only a valid read counts
+                if (lock.validate(stamp)) throw e;
+            }
+        }
+        int[] holds = readHolds.get();
+        if (holds[0] > 0) return reader.get();
+        stamp = lock.readLock();
+        holds[0]++;
+        try {
+            return reader.get();
+        } finally {
+            holds[0]--;
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Runs a query that may build a lazy index of the board. It holds the read lock,
+     * unless the thread holds it already, and runs under the index monitor.
+     *
+     * @param query the query
+     * @param <T>   type of the result
+     * @return the result
+     */
+    private <T> T indexRead(Supplier<T> query) {
+        int[] holds = readHolds.get();
+        if (holds[0] > 0) {
+            synchronized (indexLock) {
+                return query.get();
+            }
+        }
+        long stamp = lock.readLock();
+        holds[0]++;
+        try {
+            synchronized (indexLock) {
+                return query.get();
+            }
+        } finally {
+            holds[0]--;
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Gets the tile at specified position.
+     *
+     * @param row row index
+     * @param col column index
+     * @return the tile at position
+     */
+    @Override
+    public Tile getTile(int row, int col) {
+        return optimisticRead(() -> super.getTile(row, col));
+    }
+
+    /**
+     * Gets the kind of the tile at specified position.
+     *
+     * @param row row index
+     * @param col column index
+     * @return the tile kind
+     */
+    @Override
+    public TileKind getTileKind(int row, int col) {
+        return optimisticRead(() -> super.getTileKind(row, col));
+    }
+
+    /**
+     * Gets the rotation of the tile at specified position.
+     *
+     * @param row row index
+     * @param col column index
+     * @return rotation in degrees
+     */
+    @Override
+    public int getTileRotation(int row, int col) {
+        return optimisticRead(() -> super.getTileRotation(row, col));
+    }
+
+    /**
+     * Gets the connectors of the tile at specified position.
+     *
+     * @param row row index
+     * @param col column index
+     * @return 4-bit connector mask
+     */
+    @Override
+    public int getConnectorMask(int row, int col) {
+        return optimisticRead(() -> super.getConnectorMask(row, col));
+    }
+
+    /**
+     * Gets the number of rotations needed to solve a tile.
+     *
+     * @param row row index
+     * @param col column index
+     * @return number of 90-degree rotations needed
+     */
+    @Override
+    public int getRequiredClicks(int row, int col) {
+        return optimisticRead(() -> super.getRequiredClicks(row, col));
+    }
+
+    /**
+     * Rotates a tile and notifies observers after releasing the lock.
+     *
+     * @param row row index
+     * @param col column index
+     */
+    @Override
+    public void rotateTile(int row, int col) {
+        long stamp = lock.writeLock();
+        try {
+            applyRotate(row, col);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        notifyObservers(row, col);
+    }
+
+    /**
+     * Sets a tile's rotation and notifies observers after releasing the lock.
+     *
+     * @param row      row index
+     * @param col      column index
+     * @param rotation new rotation in degrees
+     */
+    @Override
+    public void setTileRotation(int row, int col, int rotation) {
+        long stamp = lock.writeLock();
+        try {
+            applyRotation(row, col, rotation);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        notifyObservers(row, col);
+    }
+
+    /**
+     * Sets the type of a tile and notifies observers after releasing the lock.
+     *
+     * @param row  row index
+     * @param col  column index
+     * @param type tile type identifier
+     */
+    @Override
+    public void setTileType(int row, int col, String type) {
+        long stamp = lock.writeLock();
+        try {
+            applyType(row, col, type);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        notifyObservers(row, col);
+    }
+
+    /**
+     * Gets the positions of all tiles of the given kind.
+     *
+     * @param kind the tile kind
+     * @return read-only copy of the positions, not a live view
+     */
+    @Override
+    public Set<Position> getPositions(TileKind kind) {
+        return indexRead(() -> Collections.unmodifiableSet(new LinkedHashSet<>(super.getPositions(kind))));
+    }
+
+    /**
+     * Marks the tiles of the given kind in a bitset.
+     *
+     * @param kind the tile kind
+     * @param bits bitset with room for every tile
+     * @return number of tiles of the kind
+     */
+    @Override
+    public int markKind(TileKind kind, long[] bits) {
+        return indexRead(() -> super.markKind(kind, bits));
+    }
+
+    /**
+     * Finds the position of the single SourceTile on the board.
+     *
+     * @return the Position of the source, or null if none found
+     */
+    @Override
+    public Position findSource() {
+        return indexRead(() -> super.findSource());
+    }
+
+    /**
+     * Gets the Zobrist hash of the board state.
+     *
+     * @return 64-bit state hash
+     */
+    @Override
+    public long getStateHash() {
+        return indexRead(() -> super.getStateHash());
+    }
+
+    /**
+     * Gets the number of open connectors.
+     *
+     * @return open connector count
+     */
+    @Override
+    public int getLeakCount() {
+        return indexRead(() -> super.getLeakCount());
+    }
+
+    /**
+     * Gets the positions of the tiles that have at least one open connector.
+     *
+     * @return read-only copy of the positions, not a live view
+     */
+    @Override
+    public Set<Position> getLeakingCells() {
+        return indexRead(() -> Collections.unmodifiableSet(new LinkedHashSet<>(super.getLeakingCells())));
+    }
+
+    /**
+     * Gets the open connectors of a tile.
+     *
+     * @param row row index
+     * @param col column index
+     * @return 4-bit mask of the open connectors
+     */
+    @Override
+    public int getLeakMask(int row, int col) {
+        return indexRead(() -> super.getLeakMask(row, col));
+    }
+
+    /**
+     * Takes an immutable snapshot of the tiles, safe to use from any thread.
+     *
+     * @return the snapshot
+     */
+    @Override
+    public BoardSnapshot snapshot() {
+        return indexRead(() -> super.snapshot());
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * Authors:
+ * Filip Hladík (xhladi26)
+ * Maksim Samusevich (xsamus00)
+ * <p>
+ * Cell storage kept outside of the Java heap.
+ */
+package cz.vut.ija.game.model;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Stores each packed cell in one byte of a direct (off-heap) buffer, which may also be
+ * a memory-mapped file.
+ * <p>
+ * The cells do not count towards the heap and are never moved or scanned by the garbage
+ * collector, so even boards with hundreds of millions of cells keep GC pauses flat.
+ * A single buffer holds at most {@link Integer#MAX_VALUE} cells.
+ * <p>
+ * The buffer may come from a file nobody checked, so every read validates the cell and
+ * reports an invalid one with its offset instead of letting it index the cell tables.
+ * Checking on read keeps wrapping a mapped file O(1): pages are only touched when the
+ * cells on them are used.
+ */
+public class DirectCellStorage implements CellStorage {
+    /**
+     * Packed cells, one byte per cell.
+     */
+    private final ByteBuffer cells;
+    /**
+     * Offset of the first cell within its source, e.g. the file, used in error messages.
+     */
+    private final long origin;
+
+    /**
+     * Allocates a direct storage of the given size with every cell set to 0.
+     *
+     * @param size number of cells
+     */
+    public DirectCellStorage(int size) {
+        this(ByteBuffer.allocateDirect(size));
+    }
+
+    /**
+     * Wraps an existing buffer, from its position to its limit.
+     *
+     * @param buffer the buffer holding the cells
+     */
+    public DirectCellStorage(ByteBuffer buffer) {
+        this(buffer, 0);
+    }
+
+    /**
+     * Wraps an existing buffer, from its position to its limit, whose first cell lies at
+     * the given offset of its source.
+     *
+     * @param buffer the buffer holding the cells
+     * @param origin offset of the first cell in the source, reported for invalid cells
+     */
+    public DirectCellStorage(ByteBuffer buffer, long origin) {
+        this.cells = buffer.slice();
+        this.origin = origin;
+    }
+
+    /**
+     * Gets the number of cells.
+     *
+     * @return number of cells
+     */
+    @Override
+    public int size() {
+        return cells.capacity();
+    }
+
+    /**
+     * Reads a packed cell.
+     *
+     * @param index row * cols + col
+     * @return the packed cell
+     * @throws IllegalStateException if the stored byte is not a valid packed cell
+     */
+    @Override
+    public int get(int index) {
+        int cell = cells.get(index) & 0xFF;
+        if (!TileKind.isCell(cell))
+            throw new IllegalStateException("Invalid cell " + cell + " at offset " + (origin + index));
+        return cell;
+    }
+
+    /**
+     * Writes a packed cell.
+     *
+     * @param index row * cols + col
+     * @param cell  the packed cell
+     */
+    @Override
+    public void set(int index, int cell) {
+        cells.put(index, (byte) cell);
+    }
+}
@@ -8,12 +8,59 @@
  */
 package cz.vut.ija.game.model;
 
-import java.util.ArrayList;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 
 /**
  * Model: a 2D grid of Tile objects.
  * Notifies observers when tiles change.
+ * <p>
+ * The board can index the positions of each tile kind. The index of a kind is built by
+ * the first query for it and then kept up to date by setTileType, so finding the source
+ * or all bulbs does not scan the grid. Compact boards keep no such index, it would cost a
+ * Position object per tile of the kind on the heap; they answer kind queries by scanning
+ * the packed cells, see {@link #markKind(TileKind, long[])}.
+ * <p>
+ * Many changes can be grouped with {@link #batch(Runnable)}. Observers are then told
+ * once about the whole set of changed tiles instead of once per change.
+ * With a notification executor (see {@link #setNotificationExecutor(Executor)}) every
+ * change is collected the same way, and the collected tiles are delivered by a single
+ * task on the executor, e.g. once per JavaFX pulse.
+ * <p>
+ * Registering an observer returns a {@link Registration} that removes it again.
+ * Observers added by {@link #addWeakObserver(BoardObserver)} do not keep their owner alive.
+ * <p>
+ * A compact board (see {@link #compact(int, int)}) keeps no Tile objects. Each cell is
+ * a packed kind and rotation in a {@link CellStorage}, one byte per cell. getTile then
+ * returns the shared tile for the cell, so tiles must be changed through the board's methods.
+ * The cells can also live off-heap, see {@link #direct(int, int)}.
+ * <p>
+ * A board may also hold shared immutable tiles (see {@link #flyweight(int, int)} and
+ * {@link TileKind#sharedTile(int)}). Changing such a cell replaces the reference instead
+ * of mutating the tile, so building a board allocates no tiles at all.
+ * <p>
+ * {@link #getStateHash()} gives a 64-bit Zobrist hash of the kinds and rotations of all
+ * tiles. It is computed by the first call and then updated in O(1) by every change made
+ * through the board's methods.
+ * <p>
+ * {@link #snapshot()} returns an immutable {@link BoardSnapshot} of the tiles. After the
+ * first snapshot the board remembers which cells changed, so the next snapshot only copies
+ * the paths to those cells and shares the rest with the previous one.
+ * <p>
+ * Which cells are neighbours is given by the board's {@link Topology}, a plain grid
+ * unless another one is set.
+ * <p>
+ * {@link #getLeakCount()} counts the open connectors, those pointing off the board or at
+ * a neighbour without the matching connector. Like the hash, the count is computed by the
+ * first call and then kept up to date by rechecking the changed tile and its neighbours.
  */
 public class GameBoard {
     /**
@@ -21,13 +68,83 @@ public class GameBoard {
      */
     private final int rows, cols;
     /**
-     * 2D array of tiles.
+     * 2D array of tiles, or null for a compact board.
      */
     private final Tile[][] tiles;
+    /**
+     * Packed cells of a compact board, or null if the board keeps Tile objects.
+     */
+    private final CellStorage cells;
     /**
      * List of observers that will be notified of changes.
      */
-    private final List<BoardObserver> observers = new ArrayList<>();
+    private final List<BoardObserver> observers = new CopyOnWriteArrayList<>();
+    /**
+     * Positions of the tiles of each queried kind, in row-major order of the first scan.
+     * Never filled for a compact board.
+     */
+    private final Map<TileKind, Set<Position>> kindIndex = new EnumMap<>(TileKind.class);
+    /**
+     * Index of the source tile found last on a compact board, or -1.
+     */
+    private int sourceHint = -1;
+    /**
+     * Nesting depth of the batches in progress, 0 outside of a batch.
+     */
+    private int batchDepth;
+    /**
+     * Tiles changed but not yet reported, in the order of their first change.
+     * Guards itself and flushScheduled.
+     */
+    private final Set<Position> pendingChanges = new LinkedHashSet<>();
+    /**
+     * Executor delivering the collected changes, or null to notify on the changing thread.
+     */
+    private volatile Executor notificationExecutor;
+    /**
+     * Whether a flush of pendingChanges has been handed to the executor and not run yet.
+     */
+    private boolean flushScheduled;
+    /**
+     * Zobrist hash of the board state, valid once hashed is set.
+     */
+    private long stateHash;
+    /**
+     * Whether stateHash has been computed and is being maintained.
+     */
+    private boolean hashed;
+    /**
+     * Last snapshot taken, or null if snapshot() has not been called.
+     */
+    private BoardSnapshot lastSnapshot;
+    /**
+     * Indices of the cells changed since the last snapshot.
+     */
+    private int[] dirty = new int[16];
+    /**
+     * Number of entries in dirty.
+     */
+    private int dirtyCount;
+    /**
+     * Bitset of the cells in dirty, allocated with the first snapshot.
+     */
+    private long[] dirtyMark;
+    /**
+     * Neighbourhood of the cells, created on first use.
+     */
+    private Topology topology;
+    /**
+     * Open connectors of every tile as a 4-bit mask, or null until getLeakCount() is called.
+     */
+    private byte[] leaks;
+    /**
+     * Number of open connectors, valid once leaks is set.
+     */
+    private int leakCount;
+    /**
+     * Positions of the tiles with at least one open connector, valid once leaks is set.
+     */
+    private final Set<Position> leakingCells = new LinkedHashSet<>();
 
     /**
      * Stores the correct rotations for auto-solve.
@@ -56,6 +173,7 @@ public class GameBoard {
     public GameBoard(int rows, int cols) {
         this.rows = rows;
         this.cols = cols;
+        this.cells = null;
         tiles = new Tile[rows][cols];
         // make sure no cell is null!
         for (int r = 0; r < rows; r++) {
@@ -73,6 +191,7 @@ public class GameBoard {
     public GameBoard(Tile[][] initial) {
         this.rows = initial.length;
         this.cols = initial[0].length;
+        this.cells = null;
         this.tiles = new Tile[rows][cols];
         for (int r = 0; r < rows; r++) {
             if (initial[r].length != cols)
@@ -81,6 +200,90 @@ public class GameBoard {
         }
     }
 
+    /**
+     * Creates a compact game board on top of the given cell storage.
+     * The cells are used as they are.
+     *
+     * @param rows  number of rows
+     * @param cols  number of columns
+     * @param cells storage holding rows * cols packed cells
+     */
+    public GameBoard(int rows, int cols, CellStorage cells) {
+        if (cells.size() != rows * cols)
+            throw new IllegalArgumentException("Storage size does not match the board");
+        this.rows = rows;
+        this.cols = cols;
+        this.tiles = null;
+        this.cells = cells;
+    }
+
+    /**
+     * Creates a game board of shared immutable tiles, filled with straight wires.
+     *
+     * @param rows number of rows
+     * @param cols number of columns
+     * @return the new board
+     */
+    public static GameBoard flyweight(int rows, int cols) {
+        Tile[][] initial = new Tile[rows][cols];
+        for (Tile[] row : initial) {
+            Arrays.fill(row, TileKind.WIRE.sharedTile(0));
+        }
+        return new GameBoard(initial);
+    }
+
+    /**
+     * Creates a compact game board with one byte per cell, filled with straight wires.
+     *
+     * @param rows number of rows
+     * @param cols number of columns
+     * @return the new board
+     */
+    public static GameBoard compact(int rows, int cols) {
+        CellStorage cells = new ByteArrayCellStorage(rows * cols);
+        int wire = TileKind.WIRE.cell(0);
+        for (int i = 0; i < rows * cols; i++) {
+            cells.set(i, wire);
+        }
+        return new GameBoard(rows, cols, cells);
+    }
+
+    /**
+     * Creates a compact game board whose cells are stored off-heap, filled with straight wires.
+     * Meant for very large boards, see {@link DirectCellStorage}.
+     *
+     * @param rows number of rows
+     * @param cols number of columns
+     * @return the new board
+     */
+    public static GameBoard direct(int rows, int cols) {
+        CellStorage cells = new DirectCellStorage(Math.multiplyExact(rows, cols));
+        int wire = TileKind.WIRE.cell(0);
+        for (int i = 0; i < rows * cols; i++) {
+            cells.set(i, wire);
+        }
+        return new GameBoard(rows, cols, cells);
+    }
+
+    /**
+     * Creates a compact game board in the state of the given snapshot.
+     * Snapshots of the new board continue from that snapshot.
+     *
+     * @param snapshot the board state
+     * @return the new board
+     */
+    public static GameBoard fromSnapshot(BoardSnapshot snapshot) {
+        int rows = snapshot.getRows(), cols = snapshot.getCols();
+        CellStorage cells = new ByteArrayCellStorage(rows * cols);
+        for (int i = 0; i < rows * cols; i++) {
+            cells.set(i, snapshot.getCell(i));
+        }
+        GameBoard board = new GameBoard(rows, cols, cells);
+        board.lastSnapshot = snapshot;
+        board.dirtyMark = new long[(rows * cols + 63) >>> 6];
+        return board;
+    }
+
     /**
      * Sets the solution rotations for auto-solving.
      *
@@ -117,15 +320,80 @@ public class GameBoard {
         return cols;
     }
 
+    /**
+     * Gets the topology of the board, a plain grid unless another one was set.
+     *
+     * @return the topology
+     */
+    public Topology getTopology() {
+        if (topology == null) {
+            topology = Topology.square(rows, cols);
+        }
+        return topology;
+    }
+
+    /**
+     * Sets the topology of the board, e.g. a {@link Topology#torus(int, int)}.
+     * Simulators created afterwards use it.
+     *
+     * @param topology topology of the same size as the board
+     */
+    public void setTopology(Topology topology) {
+        if (topology.getRows() != rows || topology.getCols() != cols)
+            throw new IllegalArgumentException("Topology size does not match the board");
+        this.topology = topology;
+        // walls and neighbours changed, count again when asked
+        leaks = null;
+    }
+
     /**
      * Gets the tile at specified position.
+     * On a compact board this is the shared tile for the cell.
      *
      * @param row row index
      * @param col column index
      * @return the tile at position
      */
     public Tile getTile(int row, int col) {
-        return tiles[row][col];
+        if (cells == null) return tiles[row][col];
+        int cell = cells.get(row * cols + col);
+        return TileKind.ofCell(cell).sharedTile(TileKind.rotationOfCell(cell));
+    }
+
+    /**
+     * Gets the kind of the tile at specified position without creating a tile.
+     *
+     * @param row row index
+     * @param col column index
+     * @return the tile kind
+     */
+    public TileKind getTileKind(int row, int col) {
+        if (cells == null) return tiles[row][col].getKind();
+        return TileKind.ofCell(cells.get(row * cols + col));
+    }
+
+    /**
+     * Gets the rotation of the tile at specified position without creating a tile.
+     *
+     * @param row row index
+     * @param col column index
+     * @return rotation in degrees
+     */
+    public int getTileRotation(int row, int col) {
+        if (cells == null) return tiles[row][col].getRotation();
+        return TileKind.rotationOfCell(cells.get(row * cols + col));
+    }
+
+    /**
+     * Gets the connectors of the tile at specified position.
+     *
+     * @param row row index
+     * @param col column index
+     * @return 4-bit connector mask, see {@link Side#bit()}
+     */
+    public int getConnectorMask(int row, int col) {
+        if (cells == null) return tiles[row][col].getConnectorMask();
+        return TileKind.maskOfCell(cells.get(row * cols + col));
     }
 
     /**
@@ -135,10 +403,35 @@ public class GameBoard {
      * @param col column index
      */
     public void rotateTile(int row, int col) {
-        tiles[row][col].rotate();
+        applyRotate(row, col);
         notifyObservers(row, col);
     }
 
+    /**
+     * Rotates a tile without notifying observers.
+     *
+     * @param row row index
+     * @param col column index
+     */
+    void applyRotate(int row, int col) {
+        int before = cellAt(row, col);
+        if (cells == null) {
+            Tile tile = tiles[row][col];
+            if (tile.isShared()) {
+                tiles[row][col] = tile.getKind().sharedTile(tile.getRotation() + 90);
+            } else {
+                tile.rotate();
+            }
+        } else {
+            int index = row * cols + col;
+            int cell = cells.get(index);
+            cells.set(index, (cell & ~3) | ((cell + 1) & 3));
+        }
+        rehash(row, col, before);
+        markDirty(row, col);
+        releak(row, col);
+    }
+
     /**
      * Sets a tile's rotation and notifies observers.
      *
@@ -147,10 +440,35 @@ public class GameBoard {
      * @param rotation new rotation in degrees
      */
     public void setTileRotation(int row, int col, int rotation) {
-        tiles[row][col].setRotation(rotation);
+        applyRotation(row, col, rotation);
         notifyObservers(row, col);
     }
 
+    /**
+     * Sets a tile's rotation without notifying observers.
+     *
+     * @param row      row index
+     * @param col      column index
+     * @param rotation new rotation in degrees
+     */
+    void applyRotation(int row, int col, int rotation) {
+        int before = cellAt(row, col);
+        if (cells == null) {
+            Tile tile = tiles[row][col];
+            if (tile.isShared()) {
+                tiles[row][col] = tile.getKind().sharedTile(rotation);
+            } else {
+                tile.setRotation(rotation);
+            }
+        } else {
+            int index = row * cols + col;
+            cells.set(index, TileKind.ofCell(cells.get(index)).cell(((rotation % 360) + 360) % 360));
+        }
+        rehash(row, col, before);
+        markDirty(row, col);
+        releak(row, col);
+    }
+
     /**
      * Sets the type of a tile.
      *
@@ -159,54 +477,544 @@ public class GameBoard {
      * @param type tile type identifier
      */
     public void setTileType(int row, int col, String type) {
-        int originalRotation = tiles[row][col].getRotation();
-
-        Tile newTile;
-        switch (type) {
-            case "S":
-                newTile = new SourceTile();
-                break;
-            case "B":
-                newTile = new BulbTile();
-                break;
-            case "I":
-                newTile = new WireTile();
-                break;
-            case "L":
-                newTile = new LTile();
-                break;
-            case "T":
-                newTile = new TTile();
-                break;
-            case "X":
-                newTile = new XTile();
-                break;
-            default:
-                newTile = new WireTile();
-                break;
-        }
-
-        newTile.setRotation(originalRotation);
-        tiles[row][col] = newTile;
+        applyType(row, col, type);
         notifyObservers(row, col);
     }
 
+    /**
+     * Sets the type of a tile without notifying observers.
+     *
+     * @param row  row index
+     * @param col  column index
+     * @param type tile type identifier
+     */
+    void applyType(int row, int col, String type) {
+        int before = cellAt(row, col);
+        TileKind oldKind = TileKind.ofCell(before);
+        TileKind newKind = TileKind.fromType(type);
+
+        if (cells == null) {
+            Tile oldTile = tiles[row][col];
+            Tile newTile;
+            if (oldTile.isShared()) {
+                // a shared tile is replaced by a shared one
+                newTile = newKind.sharedTile(oldTile.getRotation());
+            } else {
+                newTile = newKind.newTile();
+                newTile.setRotation(oldTile.getRotation());
+            }
+            tiles[row][col] = newTile;
+        } else {
+            int index = row * cols + col;
+            cells.set(index, newKind.cell(TileKind.rotationOfCell(cells.get(index))));
+        }
+        if (oldKind != newKind) {
+            Position p = new Position(row, col);
+            Set<Position> oldPositions = kindIndex.get(oldKind);
+            if (oldPositions != null) oldPositions.remove(p);
+            Set<Position> newPositions = kindIndex.get(newKind);
+            if (newPositions != null) newPositions.add(p);
+        }
+        rehash(row, col, before);
+        markDirty(row, col);
+        releak(row, col);
+    }
+
+    /**
+     * Gets the positions of all tiles of the given kind.
+     * The first call for a kind scans the board, later calls are answered from the index.
+     * A compact board scans its cells on every call and keeps nothing.
+     *
+     * @param kind the tile kind
+     * @return read-only positions, a live view unless the board is compact
+     */
+    public Set<Position> getPositions(TileKind kind) {
+        if (cells != null) return Collections.unmodifiableSet(scan(kind));
+        return Collections.unmodifiableSet(indexOf(kind));
+    }
+
+    /**
+     * Sets bit (row * cols + col) of every tile of the given kind. Compact boards scan the
+     * packed cells, other boards read the kind index, so no Position is created for a
+     * compact board.
+     *
+     * @param kind the tile kind
+     * @param bits bitset with room for every tile, only set bits are written
+     * @return number of tiles of the kind
+     */
+    public int markKind(TileKind kind, long[] bits) {
+        int count = 0;
+        if (cells != null) {
+            for (int i = 0, n = rows * cols; i < n; i++) {
+                if (TileKind.ofCell(cells.get(i)) == kind) {
+                    bits[i >>> 6] |= 1L << i;
+                    count++;
+                }
+            }
+            return count;
+        }
+        for (Position p : indexOf(kind)) {
+            int index = CellIndex.of(p, cols);
+            bits[index >>> 6] |= 1L << index;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Takes an immutable snapshot of the tiles.
+     * The first call copies the whole board, later calls only the cells changed since.
+     *
+     * @return the snapshot
+     */
+    public BoardSnapshot snapshot() {
+        if (lastSnapshot == null) {
+            lastSnapshot = BoardSnapshot.build(rows, cols, i -> cellAt(i / cols, i % cols));
+            dirtyMark = new long[(rows * cols + 63) >>> 6];
+        } else if (dirtyCount > 0) {
+            Arrays.sort(dirty, 0, dirtyCount);
+            lastSnapshot = lastSnapshot.withCells(dirty, dirtyCount, i -> cellAt(i / cols, i % cols));
+            for (int i = 0; i < dirtyCount; i++) {
+                dirtyMark[dirty[i] >>> 6] &= ~(1L << dirty[i]);
+            }
+            dirtyCount = 0;
+        }
+        return lastSnapshot;
+    }
+
+    /**
+     * Remembers a changed cell for the next snapshot.
+     *
+     * @param row row index
+     * @param col column index
+     */
+    private void markDirty(int row, int col) {
+        if (lastSnapshot == null) return;
+        int index = row * cols + col;
+        if ((dirtyMark[index >>> 6] & (1L << index)) != 0) return;
+        dirtyMark[index >>> 6] |= 1L << index;
+        if (dirtyCount == dirty.length) {
+            dirty = Arrays.copyOf(dirty, dirtyCount * 2);
+        }
+        dirty[dirtyCount++] = index;
+    }
+
+    /**
+     * Gets the Zobrist hash of the board state: the kind and rotation of every tile
+     * and the board size. Boards in the same state have the same hash.
+     * The first call scans the board, later calls are answered in constant time.
+     *
+     * @return 64-bit state hash
+     */
+    public long getStateHash() {
+        if (!hashed) {
+            long hash = mix(((long) rows << 32) | cols);
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < cols; c++) {
+                    hash ^= zobristKey(r * cols + c, cellAt(r, c));
+                }
+            }
+            stateHash = hash;
+            hashed = true;
+        }
+        return stateHash;
+    }
+
+    /**
+     * Updates the state hash after a tile has changed.
+     *
+     * @param row    row index
+     * @param col    column index
+     * @param before packed cell before the change
+     */
+    private void rehash(int row, int col, int before) {
+        if (!hashed) return;
+        int index = row * cols + col;
+        stateHash ^= zobristKey(index, before) ^ zobristKey(index, cellAt(row, col));
+    }
+
+    /**
+     * Gets the number of open connectors: connectors pointing off the board or at a
+     * neighbour without a connector on the shared side. A solved puzzle without loose
+     * ends has none. The first call scans the board, later calls are answered in
+     * constant time.
+     *
+     * @return open connector count
+     */
+    public int getLeakCount() {
+        ensureLeaks();
+        return leakCount;
+    }
+
+    /**
+     * Gets the positions of the tiles that have at least one open connector.
+     *
+     * @return read-only live view of the positions
+     */
+    public Set<Position> getLeakingCells() {
+        ensureLeaks();
+        return Collections.unmodifiableSet(leakingCells);
+    }
+
+    /**
+     * Gets the open connectors of a tile.
+     *
+     * @param row row index
+     * @param col column index
+     * @return 4-bit mask of the open connectors
+     */
+    public int getLeakMask(int row, int col) {
+        ensureLeaks();
+        return leaks[row * cols + col];
+    }
+
+    /**
+     * Counts the open connectors of the whole board, unless they are being maintained.
+     */
+    private void ensureLeaks() {
+        if (leaks != null) return;
+        leaks = new byte[rows * cols];
+        leakCount = 0;
+        leakingCells.clear();
+        for (int i = 0; i < leaks.length; i++) {
+            setLeaks(i, openSides(i));
+        }
+    }
+
+    /**
+     * Rechecks the open connectors of a changed tile and its neighbours.
+     *
+     * @param row row index
+     * @param col column index
+     */
+    private void releak(int row, int col) {
+        if (leaks == null) return;
+        Topology t = getTopology();
+        int index = row * cols + col;
+        setLeaks(index, openSides(index));
+        for (int d = 0; d < 4; d++) {
+            int next = t.neighbour(index, d);
+            if (next >= 0) setLeaks(next, openSides(next));
+        }
+    }
+
+    /**
+     * Finds the open connectors of a tile.
+     *
+     * @param index row * cols + col
+     * @return 4-bit mask of the open connectors
+     */
+    private int openSides(int index) {
+        Topology t = getTopology();
+        int mask = TileKind.maskOfCell(cellAt(index / cols, index % cols));
+        int open = 0;
+        for (int d = 0; d < 4; d++) {
+            if ((mask & (1 << d)) == 0) continue;
+            int next = t.neighbour(index, d);
+            if (next < 0 || (TileKind.maskOfCell(cellAt(next / cols, next % cols)) & (1 << ((d + 2) & 3))) == 0) {
+                open |= 1 << d;
+            }
+        }
+        return open;
+    }
+
+    /**
+     * Stores the open connectors of a tile, keeping the count and the leaking cells in sync.
+     *
+     * @param index row * cols + col
+     * @param open  4-bit mask of the open connectors
+     */
+    private void setLeaks(int index, int open) {
+        int old = leaks[index];
+        if (old == open) return;
+        leaks[index] = (byte) open;
+        leakCount += Integer.bitCount(open) - Integer.bitCount(old);
+        if (old == 0) {
+            leakingCells.add(new Position(index / cols, index % cols));
+        } else if (open == 0) {
+            leakingCells.remove(new Position(index / cols, index % cols));
+        }
+    }
+
+    /**
+     * Gets the tile at specified position as a packed cell, see {@link TileKind#cell(int)}.
+     *
+     * @param row row index
+     * @param col column index
+     * @return the packed cell
+     */
+    private int cellAt(int row, int col) {
+        if (cells != null) return cells.get(row * cols + col);
+        Tile tile = tiles[row][col];
+        return tile.getKind().cell(tile.getRotation());
+    }
+
+    /**
+     * Gets the Zobrist key of a cell state. Keys are derived from the cell index and
+     * the packed cell by a mixing function, so no key table is needed.
+     *
+     * @param index row * cols + col
+     * @param cell  packed cell
+     * @return the key
+     */
+    private static long zobristKey(int index, int cell) {
+        return mix(((long) index << 5) | cell);
+    }
+
+    /**
+     * SplitMix64 finalizer, spreads the bits of a value over the whole word.
+     *
+     * @param x value to mix
+     * @return mixed value
+     */
+    private static long mix(long x) {
+        x += 0x9E3779B97F4A7C15L;
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+
+    /**
+     * Gets the index of a tile kind, building it if needed.
+     *
+     * @param kind the tile kind
+     * @return the mutable set of positions
+     */
+    private Set<Position> indexOf(TileKind kind) {
+        Set<Position> positions = kindIndex.get(kind);
+        if (positions == null) {
+            positions = scan(kind);
+            kindIndex.put(kind, positions);
+        }
+        return positions;
+    }
+
+    /**
+     * Collects the positions of all tiles of a kind in row-major order.
+     *
+     * @param kind the tile kind
+     * @return a new mutable set of positions
+     */
+    private Set<Position> scan(TileKind kind) {
+        Set<Position> positions = new LinkedHashSet<>();
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (TileKind.ofCell(cellAt(r, c)) == kind) {
+                    positions.add(new Position(r, c));
+                }
+            }
+        }
+        return positions;
+    }
+
     /**
      * Adds an observer to be notified of changes.
+     * The board keeps the observer until it is removed.
      *
      * @param o observer to add
+     * @return handle removing the observer again
      */
-    public void addObserver(BoardObserver o) {
+    public Registration addObserver(BoardObserver o) {
         observers.add(o);
+        return () -> observers.remove(o);
+    }
+
+    /**
+     * Adds an observer that the board only references weakly.
+     * <p>
+     * The observer stays registered while something else keeps it reachable; once it has
+     * been garbage collected, it is dropped at the next notification. This way a board that
+     * outlives its views does not keep them alive. The caller must hold a strong reference,
+     * e.g. a lambda that nothing else references may be dropped right away.
+     *
+     * @param o observer to add
+     * @return handle removing the observer again
+     */
+    public Registration addWeakObserver(BoardObserver o) {
+        WeakObserver weak = new WeakObserver(o);
+        observers.add(weak);
+        return () -> observers.remove(weak);
+    }
+
+    /**
+     * Removes an observer added by {@link #addObserver(BoardObserver)}.
+     *
+     * @param o observer to remove
+     */
+    public void removeObserver(BoardObserver o) {
+        observers.remove(o);
+    }
+
+    /**
+     * Gets the number of registered observers, including weak ones not yet dropped.
+     *
+     * @return observer count
+     */
+    public int getObserverCount() {
+        return observers.size();
+    }
+
+    /**
+     * Observer forwarding to a weakly referenced observer, removing itself once it is gone.
+     */
+    private final class WeakObserver implements BoardObserver {
+        /**
+         * The actual observer.
+         */
+        private final WeakReference<BoardObserver> target;
+
+        /**
+         * Creates a weak wrapper.
+         *
+         * @param target the actual observer
+         */
+        WeakObserver(BoardObserver target) {
+            this.target = new WeakReference<>(target);
+        }
+
+        @Override
+        public void tileChanged(int row, int col) {
+            BoardObserver o = target.get();
+            if (o == null) {
+                observers.remove(this);
+            } else {
+                o.tileChanged(row, col);
+            }
+        }
+
+        @Override
+        public void tilesChanged(Set<Position> changed) {
+            BoardObserver o = target.get();
+            if (o == null) {
+                observers.remove(this);
+            } else {
+                o.tilesChanged(changed);
+            }
+        }
+    }
+
+    /**
+     * Starts a batch of changes. Until the matching {@link #endBatch()}, observers are not
+     * notified; the changed tiles are collected instead. Batches may be nested.
+     */
+    public void beginBatch() {
+        batchDepth++;
+    }
+
+    /**
+     * Ends a batch of changes. When the outermost batch ends, observers receive
+     * a single {@link BoardObserver#tilesChanged(Set)} with all changed tiles.
+     */
+    public void endBatch() {
+        if (batchDepth == 0)
+            throw new IllegalStateException("No batch in progress");
+        if (--batchDepth > 0) return;
+        Executor executor = notificationExecutor;
+        if (executor != null) {
+            scheduleFlush(executor);
+        } else {
+            flushChanges();
+        }
+    }
+
+    /**
+     * Gets the executor that delivers changes to the observers.
+     *
+     * @return the executor, or null if observers are notified on the changing thread
+     */
+    public Executor getNotificationExecutor() {
+        return notificationExecutor;
+    }
+
+    /**
+     * Sets the executor that delivers changes to the observers, e.g. Platform::runLater.
+     * <p>
+     * Changes are then never reported on the changing thread. They are collected, and the
+     * first change after a delivery hands one task to the executor, which reports all tiles
+     * changed until it runs in a single {@link BoardObserver#tilesChanged(Set)}.
+     * With null, observers are notified synchronously again.
+     *
+     * @param executor the executor, or null
+     */
+    public void setNotificationExecutor(Executor executor) {
+        this.notificationExecutor = executor;
+        if (executor == null && batchDepth == 0) {
+            flushChanges();
+        }
+    }
+
+    /**
+     * Reports all collected changes to the observers now, in one
+     * {@link BoardObserver#tilesChanged(Set)}. Does nothing if there are none.
+     */
+    public void flushChanges() {
+        Set<Position> changed;
+        synchronized (pendingChanges) {
+            flushScheduled = false;
+            if (pendingChanges.isEmpty()) return;
+            changed = Collections.unmodifiableSet(new LinkedHashSet<>(pendingChanges));
+            pendingChanges.clear();
+        }
+        for (BoardObserver o : observers) {
+            o.tilesChanged(changed);
+        }
     }
 
     /**
-     * Notifies all observers of a change to a tile.
+     * Hands a flush of the collected changes to the executor, unless one is waiting already.
+     *
+     * @param executor the notification executor
+     */
+    private void scheduleFlush(Executor executor) {
+        synchronized (pendingChanges) {
+            if (flushScheduled || pendingChanges.isEmpty()) return;
+            flushScheduled = true;
+        }
+        executor.execute(() -> {
+            if (batchDepth > 0) {
+                // a batch is still open, e.g. across a nested event loop; its end schedules again
+                synchronized (pendingChanges) {
+                    flushScheduled = false;
+                }
+                return;
+            }
+            flushChanges();
+        });
+    }
+
+    /**
+     * Applies the given changes as one batch.
+     *
+     * @param changes code changing the board
+     */
+    public void batch(Runnable changes) {
+        beginBatch();
+        try {
+            changes.run();
+        } finally {
+            endBatch();
+        }
+    }
+
+    /**
+     * Notifies all observers of a change to a tile, or records it inside a batch.
      *
      * @param row row of changed tile
      * @param col column of changed tile
      */
-    private void notifyObservers(int row, int col) {
+    void notifyObservers(int row, int col) {
+        Executor executor = notificationExecutor;
+        if (batchDepth > 0 || executor != null) {
+            // Nobody to tell at the end, e.g. while a board is being loaded
+            if (observers.isEmpty()) return;
+            synchronized (pendingChanges) {
+                pendingChanges.add(new Position(row, col));
+            }
+            if (batchDepth == 0) {
+                scheduleFlush(executor);
+            }
+            return;
+        }
         for (BoardObserver o : observers) {
             o.tileChanged(row, col);
         }
@@ -218,14 +1026,22 @@ public class GameBoard {
      * @return the Position of the source, or null if none found
      */
     public Position findSource() {
-        for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < cols; c++) {
-                if (tiles[r][c] instanceof SourceTile) {
-                    return new Position(r, c);
+        if (cells != null) {
+            // the last source found is checked first, a moved source costs a scan
+            if (sourceHint >= 0 && TileKind.ofCell(cells.get(sourceHint)) == TileKind.SOURCE) {
+                return new Position(sourceHint / cols, sourceHint % cols);
+            }
+            for (int i = 0, n = rows * cols; i < n; i++) {
+                if (TileKind.ofCell(cells.get(i)) == TileKind.SOURCE) {
+                    sourceHint = i;
+                    return new Position(i / cols, i % cols);
                 }
             }
+            sourceHint = -1;
+            return null;
         }
-        return null;
+        Set<Position> sources = indexOf(TileKind.SOURCE);
+        return sources.isEmpty() ? null : sources.iterator().next();
     }
 
     /**
@@ -250,7 +1066,7 @@ public class GameBoard {
     public int getRequiredClicks(int row, int col) {
         if (solutionRotations == null) return 0;
         int target = solutionRotations[row][col];
-        int current = tiles[row][col].getRotation();
+        int current = TileKind.rotationOfCell(cellAt(row, col));
         int diff = (target - current + 360) % 360;
         return diff / 90;
     }
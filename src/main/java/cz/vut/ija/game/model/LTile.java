@@ -20,6 +20,11 @@ public class LTile extends Tile {
         return "L";
     }
 
+    @Override
+    public TileKind getKind() {
+        return TileKind.L;
+    }
+
     /**
      * Base connection sides for L-shaped tile (an elbow: north + east at rotation=0).
      */
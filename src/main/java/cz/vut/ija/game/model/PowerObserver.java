@@ -0,0 +1,28 @@
+/**
+ * Authors:
+ * Filip Hladík (xhladi26)
+ * Maksim Samusevich (xsamus00)
+ * <p>
+ * Simulator -> View callback interface.
+ */
+package cz.vut.ija.game.model;
+
+/**
+ * Interface for observing changes of the powered state of the board.
+ * Tiles are identified by their index row * cols + col.
+ */
+public interface PowerObserver {
+    /**
+     * Called after a propagation changed the powered state of at least one tile.
+     *
+     * @param turnedOn  indices of tiles that became powered
+     * @param turnedOff indices of tiles that lost power
+     */
+    void powerChanged(int[] turnedOn, int[] turnedOff);
+
+    /**
+     * Called when the last unlit bulb becomes powered.
+     */
+    default void allBulbsLit() {
+    }
+}
@@ -0,0 +1,19 @@
+/**
+ * Authors:
+ * Filip Hladík (xhladi26)
+ * Maksim Samusevich (xsamus00)
+ * <p>
+ * Handle of a registered observer.
+ */
+package cz.vut.ija.game.model;
+
+/**
+ * Returned when an observer is registered, used to unregister it again.
+ */
+@FunctionalInterface
+public interface Registration {
+    /**
+     * Unregisters the observer. Removing it more than once has no effect.
+     */
+    void remove();
+}
@@ -47,4 +47,14 @@ public enum Side {
         }
         throw new IllegalStateException();
     }
+
+    /**
+     * Returns the bit of this side in a 4-bit connector mask
+     * (NORTH = 1, EAST = 2, SOUTH = 4, WEST = 8).
+     *
+     * @return the connector bit
+     */
+    public int bit() {
+        return 1 << ordinal();
+    }
 }
\ No newline at end of file
@@ -20,6 +20,11 @@ public class SourceTile extends Tile {
         return "S";
     }
 
+    @Override
+    public TileKind getKind() {
+        return TileKind.SOURCE;
+    }
+
     /**
      * Base connection side for the SourceTile.
      * By convention, the source outputs downward (SOUTH) at rotation=0.
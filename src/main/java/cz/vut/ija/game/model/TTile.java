@@ -19,6 +19,11 @@ public class TTile extends Tile {
         return "T";
     }
 
+    @Override
+    public TileKind getKind() {
+        return TileKind.T;
+    }
+
     /**
      * Base connection sides for T-shaped tile (three sides: east, south, west).
      * At rotation = 0, connects East, South, and West (hole on North).
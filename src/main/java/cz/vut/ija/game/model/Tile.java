@@ -8,21 +8,29 @@
 package cz.vut.ija.game.model;
 
 import java.util.Set;
-import java.util.EnumSet;
 
 /**
  * Base class for all tiles.
+ * <p>
+ * Each (kind, rotation) pair also has one shared immutable instance, see
+ * {@link TileKind#sharedTile(int)}. Shared tiles cannot be rotated; a board holding
+ * them swaps the reference instead.
  */
 public abstract class Tile {
     /**
      * Current rotation of the tile in degrees (0, 90, 180, or 270).
      */
     private int rotation = 0;
+    /**
+     * Whether this is a shared immutable instance.
+     */
+    private boolean shared;
 
     /**
      * Rotate this tile 90° clockwise.
      */
     public void rotate() {
+        if (shared) throw new UnsupportedOperationException("Shared tile cannot be rotated");
         rotation = (rotation + 90) % 360;
     }
 
@@ -41,10 +49,27 @@ public abstract class Tile {
      * @param rotation rotation angle in degrees
      */
     public void setRotation(int rotation) {
+        if (shared) throw new UnsupportedOperationException("Shared tile cannot be rotated");
         // Normalize into [0..359]
         this.rotation = ((rotation % 360) + 360) % 360;
     }
 
+    /**
+     * Checks whether this is a shared immutable instance.
+     *
+     * @return true if the tile cannot be rotated
+     */
+    public boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * Makes this tile a shared immutable instance.
+     */
+    void share() {
+        shared = true;
+    }
+
     /**
      * Gets the type of the tile, e.g. "I","L","T","X","S","B".
      *
@@ -52,6 +77,13 @@ public abstract class Tile {
      */
     public abstract String getType();
 
+    /**
+     * Gets the kind of the tile.
+     *
+     * @return the tile kind
+     */
+    public abstract TileKind getKind();
+
     /**
      * Returns the set of sides (NORTH, EAST, SOUTH, WEST) that this tile
      * connects to in its base orientation (rotation = 0).
@@ -60,6 +92,16 @@ public abstract class Tile {
      */
     public abstract Set<Side> getBaseSides();
 
+    /**
+     * Returns the connectors of this tile at its current rotation as a 4-bit mask,
+     * one bit per side (see {@link Side#bit()}). Read from the precomputed table in {@link TileKind}.
+     *
+     * @return connector mask
+     */
+    public int getConnectorMask() {
+        return getKind().getMask(rotation);
+    }
+
     /**
      * Computes which sides this tile connects to, taking its current
      * rotation into account.
@@ -67,29 +109,7 @@ public abstract class Tile {
      * @return a Set of Side enums for the rotated tile
      */
     public Set<Side> getRotatedSides() {
-        int steps = (getRotation() / 90) % 4;
-        Set<Side> rotated = EnumSet.noneOf(Side.class);
-        for (Side base : getBaseSides()) {
-            Side cur = base;
-            for (int i = 0; i < steps; i++) {
-                switch (cur) {
-                    case NORTH:
-                        cur = Side.EAST;
-                        break;
-                    case EAST:
-                        cur = Side.SOUTH;
-                        break;
-                    case SOUTH:
-                        cur = Side.WEST;
-                        break;
-                    case WEST:
-                        cur = Side.NORTH;
-                        break;
-                }
-            }
-            rotated.add(cur);
-        }
-        return rotated;
+        return TileKind.sidesOf(getConnectorMask());
     }
 
     /**
@@ -100,6 +120,6 @@ public abstract class Tile {
      * @return true if rotated connections include the side
      */
     public boolean connects(Side side) {
-        return getRotatedSides().contains(side);
+        return (getConnectorMask() & side.bit()) != 0;
     }
 }
\ No newline at end of file
@@ -0,0 +1,295 @@
+/**
+ * Authors:
+ * Filip Hladík (xhladi26)
+ * Maksim Samusevich (xsamus00)
+ * <p>
+ * Enum of all tile kinds with their precomputed connector masks.
+ */
+package cz.vut.ija.game.model;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Kind of a tile together with a lookup table of its connectors.
+ * <p>
+ * Connectors are stored as a 4-bit mask with one bit per side (see {@link Side#bit()}).
+ * The mask of every (kind, rotation) pair is computed once from the tile's base sides,
+ * so connection queries are a single array lookup.
+ * <p>
+ * A kind and a rotation can also be packed into one small cell value, which is how
+ * compact boards store their tiles (see {@link CellStorage}).
+ */
+public enum TileKind {
+    /**
+     * Power source, see {@link SourceTile}.
+     */
+    SOURCE("S", SourceTile::new),
+    /**
+     * Light bulb, see {@link BulbTile}.
+     */
+    BULB("B", BulbTile::new),
+    /**
+     * Straight wire, see {@link WireTile}.
+     */
+    WIRE("I", WireTile::new),
+    /**
+     * L-shaped wire, see {@link LTile}.
+     */
+    L("L", LTile::new),
+    /**
+     * T-shaped wire, see {@link TTile}.
+     */
+    T("T", TTile::new),
+    /**
+     * X-shaped wire, see {@link XTile}.
+     */
+    X("X", XTile::new);
+
+    /**
+     * Wire kind that can be rotated to match each connector mask.
+     */
+    private static final TileKind[] WIRE_BY_MASK = new TileKind[16];
+
+    static {
+        for (TileKind kind : new TileKind[]{WIRE, L, T, X}) {
+            for (int mask : kind.masks) {
+                WIRE_BY_MASK[mask] = kind;
+            }
+        }
+        for (int mask = 0; mask < 16; mask++) {
+            if (WIRE_BY_MASK[mask] == null) {
+                WIRE_BY_MASK[mask] = WIRE;
+            }
+        }
+    }
+
+    /**
+     * All kinds, indexed by ordinal.
+     */
+    private static final TileKind[] KINDS = values();
+
+    /**
+     * Connector mask of every packed cell, see {@link #cell(int)}.
+     */
+    private static final int[] CELL_MASKS = new int[KINDS.length << 2];
+
+    static {
+        for (TileKind kind : KINDS) {
+            for (int step = 0; step < 4; step++) {
+                CELL_MASKS[kind.ordinal() << 2 | step] = kind.masks[step];
+            }
+        }
+    }
+
+    /**
+     * Type identifier, e.g. "I","L","T","X","S","B".
+     */
+    private final String type;
+    /**
+     * Creates new tiles of this kind.
+     */
+    private final Supplier<Tile> factory;
+    /**
+     * Connector mask for each rotation step (0, 90, 180 and 270 degrees).
+     */
+    private final int[] masks = new int[4];
+    /**
+     * Shared immutable tile for each rotation step.
+     */
+    private final Tile[] sharedTiles = new Tile[4];
+
+    /**
+     * Creates a tile kind and precomputes its connector masks.
+     *
+     * @param type    type identifier
+     * @param factory creates new tiles of this kind
+     */
+    TileKind(String type, Supplier<Tile> factory) {
+        this.type = type;
+        this.factory = factory;
+        int base = maskOf(factory.get().getBaseSides());
+        for (int step = 0; step < 4; step++) {
+            masks[step] = rotateMask(base, step);
+            Tile tile = factory.get();
+            tile.setRotation(step * 90);
+            tile.share();
+            sharedTiles[step] = tile;
+        }
+    }
+
+    /**
+     * Gets the type identifier of this kind.
+     *
+     * @return "I","L","T","X","S" or "B"
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Gets the connector mask of this kind at the given rotation.
+     *
+     * @param rotation rotation in degrees (0, 90, 180 or 270)
+     * @return 4-bit connector mask
+     */
+    public int getMask(int rotation) {
+        return masks[(rotation / 90) & 3];
+    }
+
+    /**
+     * Finds the rotation at which this kind has exactly the given connectors.
+     *
+     * @param mask wanted connector mask
+     * @return rotation in degrees, or -1 if no rotation matches
+     */
+    public int rotationFor(int mask) {
+        for (int step = 0; step < 4; step++) {
+            if (masks[step] == mask) return step * 90;
+        }
+        return -1;
+    }
+
+    /**
+     * Packs this kind and a rotation into a single cell value,
+     * the kind ordinal in bits 2-4 and the rotation step in bits 0-1.
+     *
+     * @param rotation rotation in degrees (0, 90, 180 or 270)
+     * @return the packed cell, 0-23
+     */
+    public int cell(int rotation) {
+        return ordinal() << 2 | (rotation / 90) & 3;
+    }
+
+    /**
+     * Checks if a value is a packed cell of some kind and rotation.
+     *
+     * @param cell the value
+     * @return true if it can be passed to {@link #ofCell(int)} and the other cell methods
+     */
+    public static boolean isCell(int cell) {
+        return cell >= 0 && cell < CELL_MASKS.length;
+    }
+
+    /**
+     * Gets the kind of a packed cell.
+     *
+     * @param cell packed cell, see {@link #cell(int)}
+     * @return the tile kind
+     */
+    public static TileKind ofCell(int cell) {
+        return KINDS[cell >>> 2];
+    }
+
+    /**
+     * Gets the rotation of a packed cell.
+     *
+     * @param cell packed cell, see {@link #cell(int)}
+     * @return rotation in degrees
+     */
+    public static int rotationOfCell(int cell) {
+        return (cell & 3) * 90;
+    }
+
+    /**
+     * Gets the connectors of a packed cell.
+     *
+     * @param cell packed cell, see {@link #cell(int)}
+     * @return 4-bit connector mask
+     */
+    public static int maskOfCell(int cell) {
+        return CELL_MASKS[cell];
+    }
+
+    /**
+     * Creates a new tile of this kind at rotation 0.
+     *
+     * @return the new tile
+     */
+    public Tile newTile() {
+        return factory.get();
+    }
+
+    /**
+     * Gets the shared immutable tile of this kind at the given rotation.
+     *
+     * @param rotation rotation in degrees, any multiple of 90
+     * @return the shared tile
+     */
+    public Tile sharedTile(int rotation) {
+        return sharedTiles[(((rotation % 360) + 360) % 360) / 90];
+    }
+
+    /**
+     * Looks up the kind for a type identifier.
+     *
+     * @param type type identifier, e.g. "I","L","T","X","S","B"
+     * @return the matching kind, WIRE for unknown identifiers
+     */
+    public static TileKind fromType(String type) {
+        switch (type) {
+            case "S":
+                return SOURCE;
+            case "B":
+                return BULB;
+            case "L":
+                return L;
+            case "T":
+                return T;
+            case "X":
+                return X;
+            default:
+                return WIRE;
+        }
+    }
+
+    /**
+     * Chooses the wire kind that can be rotated to have exactly the given connectors.
+     *
+     * @param mask wanted connector mask
+     * @return the matching wire kind, WIRE if no wire has such connectors
+     */
+    public static TileKind wireFor(int mask) {
+        return WIRE_BY_MASK[mask & 0xF];
+    }
+
+    /**
+     * Converts a set of sides into a connector mask.
+     *
+     * @param sides the sides
+     * @return 4-bit connector mask
+     */
+    public static int maskOf(Set<Side> sides) {
+        int mask = 0;
+        for (Side s : sides) {
+            mask |= s.bit();
+        }
+        return mask;
+    }
+
+    /**
+     * Converts a connector mask into a set of sides.
+     *
+     * @param mask 4-bit connector mask
+     * @return a new set of the sides in the mask
+     */
+    public static Set<Side> sidesOf(int mask) {
+        Set<Side> sides = EnumSet.noneOf(Side.class);
+        for (Side s : Side.values()) {
+            if ((mask & s.bit()) != 0) sides.add(s);
+        }
+        return sides;
+    }
+
+    /**
+     * Rotates a connector mask clockwise by the given number of 90-degree steps.
+     *
+     * @param mask  4-bit connector mask
+     * @param steps number of steps (0-3)
+     * @return the rotated mask
+     */
+    public static int rotateMask(int mask, int steps) {
+        return ((mask << steps) | (mask >>> (4 - steps))) & 0xF;
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ * Authors:
+ * Filip Hladík (xhladi26)
+ * Maksim Samusevich (xsamus00)
+ * <p>
+ * Neighbourhood of the cells of a board.
+ */
+package cz.vut.ija.game.model;
+
+/**
+ * Says which cell lies next to which, for a board of a given shape.
+ * <p>
+ * Cells are addressed by their index row * cols + col and directions are Side ordinals,
+ * like in {@link CellIndex}. The neighbours are precomputed into one int table with four
+ * entries per cell, -1 standing for a step off the board, so hot loops look them up
+ * instead of checking bounds. Boards with more than {@link #MAX_TABLE_CELLS} cells
+ * compute the neighbours on the fly rather than spend 16 bytes per cell on the table.
+ * <p>
+ * Two shapes exist: the plain {@link #square(int, int)} grid and the {@link #torus(int, int)},
+ * whose edges wrap around to the opposite side.
+ */
+public final class Topology {
+    /**
+     * Largest board whose neighbours are precomputed.
+     */
+    public static final int MAX_TABLE_CELLS = 1 << 20;
+    /**
+     * Number of rows and columns of the board.
+     */
+    private final int rows, cols;
+    /**
+     * Whether the edges wrap around.
+     */
+    private final boolean wraps;
+    /**
+     * Neighbour of every cell in every direction at index * 4 + d, or null if too large.
+     */
+    private final int[] neighbours;
+
+    /**
+     * Creates the topology and precomputes its neighbours if the board is small enough.
+     *
+     * @param rows  number of rows
+     * @param cols  number of columns
+     * @param wraps whether the edges wrap around
+     */
+    private Topology(int rows, int cols, boolean wraps) {
+        if (rows < 1 || cols < 1)
+            throw new IllegalArgumentException("Board must have at least one row and column");
+        this.rows = rows;
+        this.cols = cols;
+        this.wraps = wraps;
+        long size = (long) rows * cols;
+        if (size > MAX_TABLE_CELLS) {
+            this.neighbours = null;
+        } else {
+            this.neighbours = new int[(int) size << 2];
+            for (int i = 0; i < size; i++) {
+                for (int d = 0; d < 4; d++) {
+                    neighbours[(i << 2) | d] = compute(i, d);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the topology of a plain rectangular grid.
+     *
+     * @param rows number of rows
+     * @param cols number of columns
+     * @return the topology
+     */
+    public static Topology square(int rows, int cols) {
+        return new Topology(rows, cols, false);
+    }
+
+    /**
+     * Creates the topology of a grid whose top and bottom, and left and right edges
+     * are joined, so every cell has four neighbours.
+     *
+     * @param rows number of rows
+     * @param cols number of columns
+     * @return the topology
+     */
+    public static Topology torus(int rows, int cols) {
+        return new Topology(rows, cols, true);
+    }
+
+    /**
+     * Gets the number of rows.
+     *
+     * @return number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Gets the number of columns.
+     *
+     * @return number of columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Checks if the edges wrap around.
+     *
+     * @return true for a torus, false for a plain grid
+     */
+    public boolean wraps() {
+        return wraps;
+    }
+
+    /**
+     * Steps from a cell to its neighbour in the given direction.
+     *
+     * @param index row * cols + col
+     * @param d     direction (Side ordinal)
+     * @return index of the neighbour, or -1 if it lies outside the board
+     */
+    public int neighbour(int index, int d) {
+        if (neighbours != null) return neighbours[(index << 2) | d];
+        return compute(index, d);
+    }
+
+    /**
+     * Steps from a cell to its neighbour on the given side.
+     *
+     * @param index row * cols + col
+     * @param side  side to step to
+     * @return index of the neighbour, or -1 if it lies outside the board
+     */
+    public int neighbour(int index, Side side) {
+        return neighbour(index, side.ordinal());
+    }
+
+    /**
+     * Computes a neighbour without the table.
+     *
+     * @param index row * cols + col
+     * @param d     direction (Side ordinal)
+     * @return index of the neighbour, or -1 if it lies outside the board
+     */
+    private int compute(int index, int d) {
+        int next = CellIndex.step(index, d, rows, cols);
+        if (next >= 0 || !wraps) return next;
+        int row = CellIndex.row(index, cols), col = CellIndex.col(index, cols);
+        switch (d) {
+            case 0:
+                return CellIndex.of(rows - 1, col, cols);
+            case 1:
+                return CellIndex.of(row, 0, cols);
+            case 2:
+                return col;
+            default:
+                return CellIndex.of(row, cols - 1, cols);
+        }
+    }
+}
@@ -19,6 +19,11 @@ public class WireTile extends Tile {
         return "I";
     }
 
+    @Override
+    public TileKind getKind() {
+        return TileKind.WIRE;
+    }
+
     /**
      * Base connection sides for I-shaped tile (straight line: north + south at rotation=0).
      */
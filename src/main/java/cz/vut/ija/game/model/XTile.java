@@ -19,6 +19,11 @@ public class XTile extends Tile {
         return "X";
     }
 
+    @Override
+    public TileKind getKind() {
+        return TileKind.X;
+    }
+
     /**
      * Base connection sides for X-shaped tile (connects all four directions).
      */
@@ -0,0 +1,140 @@
+/**
+ * Authors:
+ * Filip Hladík (xhladi26)
+ * Maksim Samusevich (xsamus00)
+ * <p>
+ * A service class used for storing boards in a memory-mappable file format.
+ */
+package cz.vut.ija.game.service;
+
+import cz.vut.ija.game.model.DirectCellStorage;
+import cz.vut.ija.game.model.GameBoard;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Service for writing boards to and opening boards from board files.
+ * <p>
+ * A board file is a 16-byte header (magic "LBRD", format version, rows, cols, all
+ * big-endian ints) followed by one packed cell per tile in row-major order
+ * (see {@link cz.vut.ija.game.model.TileKind#cell(int)}). Opening a file maps it into
+ * memory and uses the mapping directly as the board's cells, so nothing is parsed up
+ * front and pages are only read from disk when the tiles are accessed. Only the header is
+ * checked when opening; each cell is checked when it is read, and a corrupt one fails
+ * with an {@link IllegalStateException} naming its file offset.
+ * <p>
+ * Only the tiles are stored, not the solution or the timer settings. A single mapping
+ * is limited to 2 GB, i.e. about 2.1 billion cells.
+ */
+public class BoardFileService {
+    /**
+     * File magic, "LBRD".
+     */
+    private static final int MAGIC = 0x4C425244;
+    /**
+     * Current format version.
+     */
+    private static final int VERSION = 1;
+    /**
+     * Size of the header in bytes.
+     */
+    private static final int HEADER_SIZE = 16;
+    /**
+     * Size of the buffer used when writing cells.
+     */
+    private static final int WRITE_CHUNK = 1 << 16;
+
+    /**
+     * Writes the tiles of a board to a board file, replacing it if it exists.
+     *
+     * @param board the board to write
+     * @param file  path of the board file
+     * @throws IOException if the file cannot be written or the board is too large
+     */
+    public void write(GameBoard board, Path file) throws IOException {
+        int rows = board.getRows(), cols = board.getCols();
+        checkSize(rows, cols);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_CHUNK);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(cols);
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < cols; c++) {
+                    if (!buffer.hasRemaining()) {
+                        writeFully(channel, buffer);
+                    }
+                    buffer.put((byte) board.getTileKind(r, c).cell(board.getTileRotation(r, c)));
+                }
+            }
+            writeFully(channel, buffer);
+        }
+    }
+
+    /**
+     * Opens a board file as a compact board backed by the mapped file.
+     * <p>
+     * The mapping is private: changes made to the board are visible only to it and are
+     * never written back to the file. The file must still be writable.
+     *
+     * @param file path of the board file
+     * @return the board
+     * @throws IOException if the file cannot be read or is not a valid board file
+     */
+    public GameBoard open(Path file) throws IOException {
+        // A private mapping needs a channel opened for writing, the file itself is not modified
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) throw new IOException("Not a board file: " + file);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) throw new IOException("Truncated header: " + file);
+            }
+            header.flip();
+            if (header.getInt() != MAGIC) throw new IOException("Not a board file: " + file);
+            int version = header.getInt();
+            if (version != VERSION) throw new IOException("Unsupported board file version " + version);
+            int rows = header.getInt(), cols = header.getInt();
+            if (rows <= 0 || cols <= 0) throw new IOException("Invalid board size " + rows + "x" + cols);
+            checkSize(rows, cols);
+            long cells = (long) rows * cols;
+            if (size < HEADER_SIZE + cells) throw new IOException("Truncated board file: " + file);
+
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.PRIVATE, HEADER_SIZE, cells);
+            return new GameBoard(rows, cols, new DirectCellStorage(mapped, HEADER_SIZE));
+        }
+    }
+
+    /**
+     * Checks that a board fits into a single mapping.
+     *
+     * @param rows number of rows
+     * @param cols number of columns
+     * @throws IOException if the board is too large
+     */
+    private void checkSize(int rows, int cols) throws IOException {
+        if ((long) rows * cols > Integer.MAX_VALUE - HEADER_SIZE) {
+            throw new IOException("Board too large for a board file: " + rows + "x" + cols);
+        }
+    }
+
+    /**
+     * Writes the buffered bytes to the channel and clears the buffer.
+     *
+     * @param channel the target channel
+     * @param buffer  buffer with the bytes to write
+     * @throws IOException if writing fails
+     */
+    private void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
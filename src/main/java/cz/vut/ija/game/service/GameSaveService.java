@@ -9,7 +9,6 @@ package cz.vut.ija.game.service;
 
 import cz.vut.ija.game.model.GameBoard;
 import cz.vut.ija.game.model.GameSave;
-import cz.vut.ija.game.model.Tile;
 
 import java.io.*;
 import java.text.SimpleDateFormat;
@@ -57,9 +56,8 @@ public class GameSaveService {
 
         for (int r = 0; r < rows; r++) {
             for (int c = 0; c < cols; c++) {
-                Tile tile = board.getTile(r, c);
-                types[r][c] = tile.getType();
-                rotations[r][c] = tile.getRotation();
+                types[r][c] = board.getTileKind(r, c).getType();
+                rotations[r][c] = board.getTileRotation(r, c);
             }
         }
 
@@ -163,22 +161,24 @@ public class GameSaveService {
         int cols = Integer.parseInt(dimensions[1]);
 
         // create a new board
-        GameBoard board = new GameBoard(rows, cols);
-
-        // set the initial board state
-        for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < cols; c++) {
-                board.setTileType(r, c, save.getInitialBoardTypes()[r][c]);
-                board.setTileRotation(r, c, save.getInitialBoardRotations()[r][c]);
+        GameBoard board = GameBoard.flyweight(rows, cols);
+
+        // set the initial board state and replay the moves as one batch
+        board.batch(() -> {
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < cols; c++) {
+                    board.setTileType(r, c, save.getInitialBoardTypes()[r][c]);
+                    board.setTileRotation(r, c, save.getInitialBoardRotations()[r][c]);
+                }
             }
-        }
 
-        // Apply the moves till the given index
-        List<GameSave.GameMove> moves = save.getMoves();
-        for (int i = 0; i <= moveIndex && i < moves.size(); i++) {
-            GameSave.GameMove move = moves.get(i);
-            board.setTileRotation(move.getRow(), move.getCol(), move.getNewRotation());
-        }
+            // Apply the moves till the given index
+            List<GameSave.GameMove> moves = save.getMoves();
+            for (int i = 0; i <= moveIndex && i < moves.size(); i++) {
+                GameSave.GameMove move = moves.get(i);
+                board.setTileRotation(move.getRow(), move.getCol(), move.getNewRotation());
+            }
+        });
 
         if (save.getSolutionRotations() != null) {
             board.setSolutionRotations(save.getSolutionRotations());
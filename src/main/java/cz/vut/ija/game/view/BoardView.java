@@ -13,7 +13,11 @@ import javafx.scene.image.ImageView;
 import javafx.scene.control.Label;
 import cz.vut.ija.game.model.BoardObserver;
 import cz.vut.ija.game.model.GameBoard;
+import cz.vut.ija.game.model.Position;
+import cz.vut.ija.game.model.PowerObserver;
+import cz.vut.ija.game.model.Registration;
 import cz.vut.ija.game.model.Tile;
+import javafx.application.Platform;
 import javafx.geometry.Pos;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
@@ -23,15 +27,30 @@ import cz.vut.ija.game.logic.GameSimulator;
 import javafx.scene.layout.HBox;
 import javafx.geometry.Insets;
 
+import java.util.Set;
+import java.util.concurrent.Executor;
+
 /**
  * Represents the game board in the UI.
  */
 
-public class BoardView extends GridPane implements BoardObserver {
+public class BoardView extends GridPane implements BoardObserver, PowerObserver {
     /**
      * The game board model.
      */
     private final GameBoard model;
+    /**
+     * Registration of this view as an observer of the model.
+     */
+    private final Registration registration;
+    /**
+     * Executor this view installed on the model, delivering changes once per FX pulse.
+     */
+    private final Executor pulseExecutor = Platform::runLater;
+    /**
+     * Executor the model used before this view, restored by dispose().
+     */
+    private final Executor previousExecutor;
     /**
      * Game simulator for checking connections.
      */
@@ -64,6 +83,11 @@ public class BoardView extends GridPane implements BoardObserver {
      */
     private boolean victoryShown = false;
 
+    /**
+     * Set by the simulator when all bulbs became lit, handled once the change is fully applied.
+     */
+    private boolean victoryReached = false;
+
     /**
      * True if this is used for replay mode (prevents showing solve and hint button)
      */
@@ -152,7 +176,10 @@ public class BoardView extends GridPane implements BoardObserver {
         this.setVgap(5);
 
         this.model = model;
-        model.addObserver(this); // Register this view as an observer of the model
+        registration = model.addObserver(this); // Register this view as an observer of the model
+        // Bursts of changes (solve, fast clicking) are redrawn once, on the FX thread
+        previousExecutor = model.getNotificationExecutor();
+        model.setNotificationExecutor(pulseExecutor);
 
         this.isReplayMode = isReplayMode;
 
@@ -173,6 +200,8 @@ public class BoardView extends GridPane implements BoardObserver {
         // Determine initial powered state and style tiles
         simulator.propagate();
         applyPowerStyles();
+        // From now on only restyle the tiles whose power changes
+        simulator.addPowerObserver(this);
 
         if (model.getSolutionRotations() != null && !isReplayMode) {
             initializeHintAndControls();
@@ -318,19 +347,72 @@ public class BoardView extends GridPane implements BoardObserver {
      */
     @Override
     public void tileChanged(int row, int col) {
+        // recalculate the powered state around the changed tile, restyling the tiles it affects
+        simulator.update(row, col);
+
+        // the changed tile itself may have a new type or rotation
         Tile tile = model.getTile(row, col);
-        tileImages[row][col].setRotate(tile.getRotation());
+        updateTileImage(tileImages[row][col], tile, simulator.isPowered(row, col));
 
-        // recalculate the powered state
-        simulator.propagate();
-        applyPowerStyles();
+        afterChange();
+    }
+
+    /**
+     * Updates the visual state after a batch of tiles has changed.
+     * The power is recalculated and the hints are refreshed only once for the whole batch.
+     *
+     * @param changed positions of the changed tiles
+     */
+    @Override
+    public void tilesChanged(Set<Position> changed) {
+        simulator.update(changed);
+        for (Position p : changed) {
+            int r = p.getRow(), c = p.getCol();
+            updateTileImage(tileImages[r][c], model.getTile(r, c), simulator.isPowered(r, c));
+        }
+
+        afterChange();
+    }
 
+    /**
+     * Refreshes the hints and checks for victory after the board has changed.
+     */
+    private void afterChange() {
         if (hintWindow != null) {
             hintWindow.refreshHints();
             totalHintClicksLabel.setText("Optimal moves: " + hintWindow.getInitialTotalHintClicks());
         }
 
-        checkVictory();
+        if (victoryReached) {
+            showVictory();
+        }
+    }
+
+    /**
+     * Remembers that the simulator lit the last bulb.
+     */
+    @Override
+    public void allBulbsLit() {
+        victoryReached = true;
+    }
+
+    /**
+     * Updates the images of the tiles whose powered state changed.
+     *
+     * @param turnedOn  indices of tiles that became powered
+     * @param turnedOff indices of tiles that lost power
+     */
+    @Override
+    public void powerChanged(int[] turnedOn, int[] turnedOff) {
+        int cols = model.getCols();
+        for (int index : turnedOn) {
+            int r = index / cols, c = index % cols;
+            updateTileImage(tileImages[r][c], model.getTile(r, c), true);
+        }
+        for (int index : turnedOff) {
+            int r = index / cols, c = index % cols;
+            updateTileImage(tileImages[r][c], model.getTile(r, c), false);
+        }
     }
 
     /**
@@ -354,34 +436,23 @@ public class BoardView extends GridPane implements BoardObserver {
     private void autoSolve() {
         int[][] sol = model.getSolutionRotations();
         if (sol == null) return;
-        for (int r = 0; r < sol.length; r++) {
-            for (int c = 0; c < sol[r].length; c++) {
-                if (sol[r][c] == -1) continue;  // 🔴 Skip tiles not in solution
-                model.setTileRotation(r, c, sol[r][c]);
+        // one batch, so the view and the hints are refreshed once at the end
+        model.batch(() -> {
+            for (int r = 0; r < sol.length; r++) {
+                for (int c = 0; c < sol[r].length; c++) {
+                    if (sol[r][c] == -1) continue;  // 🔴 Skip tiles not in solution
+                    model.setTileRotation(r, c, sol[r][c]);
+                }
             }
-        }
-        simulator.propagate();
-        applyPowerStyles();
-
-        if (hintWindow != null) {
-            hintWindow.refreshHints();
-        }
+        });
     }
 
 
     /**
-     * Checks if all lightbulb tiles are powered. If so, fire up a new Win event
+     * Announces the victory once all lightbulb tiles are powered and fires up a new Win event.
      */
-    private void checkVictory() {
-        if (victoryShown) return;
-        for (int r = 0; r < model.getRows(); r++) {
-            for (int c = 0; c < model.getCols(); c++) {
-                Tile tile = model.getTile(r, c);
-                if ("B".equals(tile.getType()) && !simulator.isPowered(r, c)) {
-                    return; // at least one lightbulb is not powered
-                }
-            }
-        }
+    private void showVictory() {
+        if (victoryShown || !simulator.allBulbsLit()) return;
 
         if (controller != null) {
             controller.stopTimer();
@@ -402,6 +473,22 @@ public class BoardView extends GridPane implements BoardObserver {
         }
     }
 
+    /**
+     * Detaches the view from its model when the view is no longer shown, so a board that
+     * outlives the view does not keep it alive. Gives the model back the notification
+     * executor it had before, unless someone replaced this view's executor meanwhile.
+     * Also closes the hint window.
+     */
+    public void dispose() {
+        registration.remove();
+        if (model.getNotificationExecutor() == pulseExecutor) {
+            model.setNotificationExecutor(previousExecutor);
+        }
+        if (hintWindow != null) {
+            hintWindow.close();
+        }
+    }
+
     /**
      * Sets the controller for this view.
      *
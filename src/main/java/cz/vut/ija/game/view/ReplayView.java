@@ -7,6 +7,7 @@
  */
 package cz.vut.ija.game.view;
 
+import cz.vut.ija.game.model.BoardSnapshot;
 import cz.vut.ija.game.model.GameBoard;
 import cz.vut.ija.game.model.GameSave;
 import cz.vut.ija.game.service.GameSaveService;
@@ -20,6 +21,7 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.scene.control.ScrollPane;
 
+import java.util.List;
 import java.util.function.Consumer;
 
 /**
@@ -59,6 +61,10 @@ public class ReplayView extends BorderPane {
      * Index of the current move being displayed.
      */
     private int currentMoveIndex = -1;
+    /**
+     * Board state after each move, frames[i + 1] is the state after move i.
+     */
+    private BoardSnapshot[] frames;
 
     /**
      * Callback for when user wants to play from beginning.
@@ -90,6 +96,7 @@ public class ReplayView extends BorderPane {
     private void setupView() {
         // Set up initial board
         GameBoard board = saveService.createBoardFromSave(save, -1);
+        recordFrames(board);
         boardView = new BoardView(board, true);
         setCenter(boardView);
 
@@ -154,13 +161,35 @@ public class ReplayView extends BorderPane {
         setBottom(bottomBox);
     }
 
+    /**
+     * Records a snapshot of the board after every move, so seeking does not replay the moves.
+     * Consecutive snapshots share all tiles except the rotated one.
+     *
+     * @param initial board in its initial state, left unchanged
+     */
+    private void recordFrames(GameBoard initial) {
+        List<GameSave.GameMove> moves = save.getMoves();
+        frames = new BoardSnapshot[moves.size() + 1];
+        GameBoard replay = GameBoard.fromSnapshot(initial.snapshot());
+        frames[0] = replay.snapshot();
+        for (int i = 0; i < moves.size(); i++) {
+            GameSave.GameMove move = moves.get(i);
+            replay.setTileRotation(move.getRow(), move.getCol(), move.getNewRotation());
+            frames[i + 1] = replay.snapshot();
+        }
+    }
+
     /**
      * Updates the board to show the state at the given move.
      *
      * @param moveIndex index of the move to display
      */
     private void updateBoardToMove(int moveIndex) {
-        GameBoard newBoard = saveService.createBoardFromSave(save, moveIndex);
+        GameBoard newBoard = GameBoard.fromSnapshot(frames[moveIndex + 1]);
+        if (save.getSolutionRotations() != null) {
+            newBoard.setSolutionRotations(save.getSolutionRotations());
+        }
+        boardView.dispose();
         boardView = new BoardView(newBoard, true);
         setCenter(boardView);
     }